@@ -0,0 +1,22 @@
+package feign;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Interface shared by the benchmarks.
+ */
+interface BenchmarkApi {
+
+    @RequestLine("GET /items")
+    Mono<String> get();
+
+    @RequestLine("GET /items/{id}?sort={sort}")
+    @Headers("X-Trace: {trace}")
+    Mono<String> find(@Param("id") String id,
+                      @Param("sort") String sort,
+                      @Param("trace") String trace,
+                      @QueryMap Map<String, Object> query,
+                      @HeaderMap Map<String, Object> headers);
+}
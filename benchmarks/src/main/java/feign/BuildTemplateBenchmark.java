@@ -0,0 +1,149 @@
+package feign;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template building in {@link BuildTemplateByResolvingArgs#create(Object[])} for a method mixing path, query and
+ * header variables with query and header maps, followed by the conversion into a {@link Request}. The static case
+ * covers methods without any variable. Every case runs against {@link BaselineBuildTemplate} as well, the previous
+ * create path, on the same method. Run with {@code -prof gc} to compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class BuildTemplateBenchmark {
+
+    private final Target<BenchmarkApi> target = new Target.HardCodedTarget<>(BenchmarkApi.class, "http://localhost");
+    private BuildTemplateByResolvingArgs buildTemplate;
+    private BuildTemplateByResolvingArgs buildStaticTemplate;
+    private BaselineBuildTemplate baselineTemplate;
+    private BaselineBuildTemplate baselineStaticTemplate;
+    private Object[] args;
+
+    @Setup
+    public void setup() {
+        for (MethodMetadata md : new Contract.Default().parseAndValidatateMetadata(BenchmarkApi.class)) {
+            if (md.configKey().startsWith("BenchmarkApi#find(")) {
+                buildTemplate = new BuildTemplateByResolvingArgs(md);
+                baselineTemplate = new BaselineBuildTemplate(md);
+            } else if (md.configKey().equals("BenchmarkApi#get()")) {
+                buildStaticTemplate = new BuildTemplateByResolvingArgs(md);
+                baselineStaticTemplate = new BaselineBuildTemplate(md);
+            }
+        }
+
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("page", 3);
+        query.put("fields", "id,name");
+        args = new Object[]{"item 42", "name", "7f3a", query, Collections.singletonMap("X-Tenant", "acme")};
+    }
+
+    @Benchmark
+    public RequestTemplate buildTemplate() {
+        return buildTemplate.create(args);
+    }
+
+    @Benchmark
+    public Request buildRequest() {
+        return target.apply(buildTemplate.create(args));
+    }
+
+    @Benchmark
+    public Request buildStaticRequest() {
+        return target.apply(buildStaticTemplate.create(new Object[0]));
+    }
+
+    @Benchmark
+    public RequestTemplate baselineBuildTemplate() {
+        return baselineTemplate.create(args);
+    }
+
+    @Benchmark
+    public Request baselineBuildRequest() {
+        // The method handler used to copy the template once more before applying the target.
+        return target.apply(new RequestTemplate(baselineTemplate.create(args)));
+    }
+
+    @Benchmark
+    public Request baselineBuildStaticRequest() {
+        return target.apply(new RequestTemplate(baselineStaticTemplate.create(new Object[0])));
+    }
+
+    /**
+     * The create path before the variables were compiled per method: every call fills a fresh variables map
+     * through the expander map and resolves the template, whether or not it has anything to resolve.
+     */
+    static final class BaselineBuildTemplate implements RequestTemplate.Factory {
+        private final MethodMetadata metadata;
+        private final Map<Integer, Param.Expander> indexToExpander = new LinkedHashMap<>();
+
+        BaselineBuildTemplate(MethodMetadata metadata) {
+            this.metadata = metadata;
+            if (metadata.indexToExpander() != null) {
+                indexToExpander.putAll(metadata.indexToExpander());
+            }
+        }
+
+        @Override
+        public RequestTemplate create(Object[] argv) {
+            RequestTemplate mutable = new RequestTemplate(metadata.template());
+            Map<String, Object> varBuilder = new LinkedHashMap<String, Object>();
+            for (Map.Entry<Integer, Collection<String>> entry : metadata.indexToName().entrySet()) {
+                int i = entry.getKey();
+                Object value = argv[entry.getKey()];
+                if (value != null) {
+                    if (indexToExpander.containsKey(i)) {
+                        value = indexToExpander.get(i).expand(value);
+                    }
+                    for (String name : entry.getValue()) {
+                        varBuilder.put(name, value);
+                    }
+                }
+            }
+
+            RequestTemplate template = mutable.resolve(varBuilder);
+            if (metadata.queryMapIndex() != null) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) argv[metadata.queryMapIndex()]).entrySet()) {
+                    template.query((String) entry.getKey(), values(entry.getValue()));
+                }
+            }
+            if (metadata.headerMapIndex() != null) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) argv[metadata.headerMapIndex()]).entrySet()) {
+                    template.header((String) entry.getKey(), values(entry.getValue()));
+                }
+            }
+            return template;
+        }
+
+        private static Collection<String> values(Object value) {
+            Collection<String> values = new ArrayList<String>();
+            if (value instanceof Iterable<?>) {
+                for (Object item : (Iterable<?>) value) {
+                    values.add(item == null ? null : item.toString());
+                }
+            } else {
+                values.add(value == null ? null : value.toString());
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package feign;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the metadata of a client, by {@link Contract.Default} against the contract generated for a
+ * {@link ReactiveFeignClient}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ContractBenchmark {
+
+    private final Contract contract = new Contract.Default();
+
+    @Benchmark
+    public List<MethodMetadata> reflectiveContract() {
+        return contract.parseAndValidatateMetadata(GeneratedBenchmarkApi.class);
+    }
+
+    @Benchmark
+    public List<MethodMetadata> generatedContract() {
+        return GeneratedImplementations.metadata(contract, GeneratedBenchmarkApi.class);
+    }
+}
@@ -0,0 +1,8 @@
+package feign;
+
+/**
+ * {@link BenchmarkApi} with an implementation generated at compile time.
+ */
+@ReactiveFeignClient
+interface GeneratedBenchmarkApi extends BenchmarkApi {
+}
@@ -0,0 +1,79 @@
+package feign;
+
+import feign.InvocationHandlerFactory.MethodHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proxy dispatch through {@link ReactiveInvocationHandler} against the implementation generated for a
+ * {@link ReactiveFeignClient}, with a method handler that does no work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class InvocationHandlerBenchmark {
+
+    private static final Mono<String> RESULT = Mono.just(StubServer.RESPONSE);
+
+    private BenchmarkApi proxy;
+    private BenchmarkApi generated;
+    private InvocationHandler handler;
+    private Method method;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        Target<BenchmarkApi> target = new Target.HardCodedTarget<>(BenchmarkApi.class, "http://localhost");
+        MethodHandler methodHandler = argv -> RESULT;
+        Map<Method, MethodHandler> dispatch = new LinkedHashMap<>();
+        for (Method m : BenchmarkApi.class.getMethods()) {
+            dispatch.put(m, methodHandler);
+        }
+
+        method = BenchmarkApi.class.getMethod("get");
+        handler = new ReactiveInvocationHandler.Factory().create(target, dispatch);
+        proxy = (BenchmarkApi) Proxy.newProxyInstance(
+                BenchmarkApi.class.getClassLoader(), new Class<?>[]{BenchmarkApi.class}, handler);
+
+        Map<String, MethodHandler> handlers = new HashMap<>();
+        for (Method m : GeneratedBenchmarkApi.class.getMethods()) {
+            handlers.put(Feign.configKey(GeneratedBenchmarkApi.class, m), methodHandler);
+        }
+        generated = GeneratedImplementations.newInstance(
+                new Target.HardCodedTarget<>(GeneratedBenchmarkApi.class, "http://localhost"), handlers);
+    }
+
+    @Benchmark
+    public Object proxyDispatch() {
+        return proxy.get();
+    }
+
+    @Benchmark
+    public Object generatedDispatch() {
+        return generated.get();
+    }
+
+    @Benchmark
+    public Object handlerDispatch() throws Throwable {
+        return handler.invoke(proxy, method, null);
+    }
+}
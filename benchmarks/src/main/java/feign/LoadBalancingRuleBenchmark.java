@@ -0,0 +1,84 @@
+package feign;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.RoundRobinRule;
+import com.netflix.loadbalancer.Server;
+import feign.ribbon.PeakEwmaRule;
+import feign.ribbon.ReactiveLBClient;
+import feign.ribbon.ReactiveRibbonClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round robin against {@link PeakEwmaRule} over a stub cluster of four servers, one of them degraded.
+ * Compare the upper percentiles of the sampled latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Threads(8)
+@Fork(2)
+public class LoadBalancingRuleBenchmark {
+
+    private static final String CLIENT_NAME = "benchmark";
+
+    @Param({"round-robin", "peak-ewma"})
+    public String rule;
+
+    @Param({"20"})
+    public int degradedDelayMillis;
+
+    private final List<StubServer> servers = new ArrayList<>();
+    private BenchmarkApi api;
+
+    @Setup
+    public void setup() {
+        BaseLoadBalancer loadBalancer = new BaseLoadBalancer();
+        loadBalancer.setRule("peak-ewma".equals(rule) ? new PeakEwmaRule() : new RoundRobinRule());
+        for (int i = 0; i < 4; i++) {
+            StubServer server = i == 0
+                    ? StubServer.start(Duration.ofMillis(degradedDelayMillis))
+                    : StubServer.start(Duration.ofMillis(1));
+            servers.add(server);
+            loadBalancer.addServer(new Server("127.0.0.1", server.port()));
+        }
+
+        ReactiveRibbonClient ribbonClient = ReactiveRibbonClient.builder()
+                .delegate(new ReactiveClient.Default())
+                .reactiveLbClientFactory(clientName -> ReactiveLBClient.create(loadBalancer,
+                        DefaultClientConfigImpl.getClientConfigWithDefaultValues(clientName)))
+                .build();
+        api = ReactiveFeign.builder()
+                .reactiveClient(ribbonClient)
+                .target(BenchmarkApi.class, "http://" + CLIENT_NAME);
+    }
+
+    @TearDown
+    public void tearDown() {
+        servers.forEach(StubServer::close);
+    }
+
+    @Benchmark
+    public String call() {
+        return api.get().block();
+    }
+}
@@ -0,0 +1,48 @@
+package feign;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full call through {@link ReactiveMethodHandler} and {@link ReactiveClient.Default} against an in-process server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class MethodHandlerBenchmark {
+
+    private StubServer server;
+    private BenchmarkApi api;
+
+    @Setup
+    public void setup() {
+        server = StubServer.start();
+        api = ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .target(BenchmarkApi.class, server.url());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String call() {
+        return api.get().block();
+    }
+}
@@ -0,0 +1,69 @@
+package feign;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.Server;
+import feign.ribbon.ReactiveLBClient;
+import feign.ribbon.ReactiveRibbonClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full call through {@link ReactiveRibbonClient} and
+ * {@link com.netflix.client.AbstractReactiveLoadBalancerAwareClient} balancing over in-process servers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class RibbonBenchmark {
+
+    private static final String CLIENT_NAME = "benchmark";
+
+    private final List<StubServer> servers = new ArrayList<>();
+    private BenchmarkApi api;
+
+    @Setup
+    public void setup() {
+        BaseLoadBalancer loadBalancer = new BaseLoadBalancer();
+        for (int i = 0; i < 3; i++) {
+            StubServer server = StubServer.start();
+            servers.add(server);
+            loadBalancer.addServer(new Server("127.0.0.1", server.port()));
+        }
+
+        ReactiveRibbonClient ribbonClient = ReactiveRibbonClient.builder()
+                .delegate(new ReactiveClient.Default())
+                .reactiveLbClientFactory(clientName -> ReactiveLBClient.create(loadBalancer,
+                        DefaultClientConfigImpl.getClientConfigWithDefaultValues(clientName)))
+                .build();
+        api = ReactiveFeign.builder()
+                .reactiveClient(ribbonClient)
+                .target(BenchmarkApi.class, "http://" + CLIENT_NAME);
+    }
+
+    @TearDown
+    public void tearDown() {
+        servers.forEach(StubServer::close);
+    }
+
+    @Benchmark
+    public String call() {
+        return api.get().block();
+    }
+}
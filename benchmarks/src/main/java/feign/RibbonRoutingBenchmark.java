@@ -0,0 +1,75 @@
+package feign;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.Server;
+import feign.ribbon.ReactiveLBClient;
+import feign.ribbon.ReactiveRibbonClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The routing path of {@link ReactiveRibbonClient}, from the target url to the request of the chosen server, with a
+ * delegate which doesn't reach the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class RibbonRoutingBenchmark {
+
+    private final Request.Options options = new Request.Options();
+    private final Request request = Request.create("GET", "http://benchmark/benchmark/items?id=1",
+            Collections.emptyMap(), null, null);
+    private ReactiveRibbonClient ribbonClient;
+
+    @Setup
+    public void setup() {
+        BaseLoadBalancer loadBalancer = new BaseLoadBalancer();
+        for (int i = 0; i < 3; i++) {
+            loadBalancer.addServer(new Server("127.0.0.1", 8080 + i));
+        }
+
+        ribbonClient = ReactiveRibbonClient.builder()
+                .delegate(new RoutedClient())
+                .reactiveLbClientFactory(clientName -> ReactiveLBClient.create(loadBalancer,
+                        DefaultClientConfigImpl.getClientConfigWithDefaultValues(clientName)))
+                .build();
+    }
+
+    @Benchmark
+    public ClientResponse route() throws IOException {
+        return ribbonClient.executeReactive(request, options).block();
+    }
+
+    /**
+     * Completes every request without a response.
+     */
+    private static final class RoutedClient implements ReactiveClient {
+        @Override
+        public Mono<ClientResponse> executeReactive(Request request, Request.Options options) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Response execute(Request request, Request.Options options) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
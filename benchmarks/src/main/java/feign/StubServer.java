@@ -0,0 +1,48 @@
+package feign;
+
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.time.Duration;
+
+/**
+ * In-process Reactor Netty server answering every request with a fixed body, optionally after a delay.
+ */
+final class StubServer implements AutoCloseable {
+
+    static final String RESPONSE = "ok";
+
+    private final NettyContext context;
+
+    private StubServer(NettyContext context) {
+        this.context = context;
+    }
+
+    static StubServer start() {
+        return start(Duration.ZERO);
+    }
+
+    static StubServer start(Duration delay) {
+        Mono<String> body = delay.isZero() ? Mono.just(RESPONSE) : Mono.just(RESPONSE).delayElement(delay);
+        NettyContext context = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> response
+                        .header("Content-Type", "text/plain")
+                        .sendString(body))
+                .block();
+        return new StubServer(context);
+    }
+
+    int port() {
+        return context.address().getPort();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + port();
+    }
+
+    @Override
+    public void close() {
+        context.dispose();
+    }
+}
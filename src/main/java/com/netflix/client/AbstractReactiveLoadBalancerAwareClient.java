@@ -18,8 +18,11 @@
 package com.netflix.client;
 
 import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.BaseLoadBalancer;
 import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.IRule;
 import com.netflix.loadbalancer.LoadBalancerContext;
+import com.netflix.loadbalancer.Server;
 import com.netflix.loadbalancer.reactive.LoadBalancerCommand;
 import reactor.core.publisher.Mono;
 import rx.Observable;
@@ -32,6 +35,10 @@ import java.net.URI;
  */
 public abstract class AbstractReactiveLoadBalancerAwareClient<S extends ClientRequest, T> extends LoadBalancerContext implements IReactiveClient<S, T>, IClientConfigAware {
 
+    private volatile boolean rxJavaBridge = false;
+    private volatile RequestHedger requestHedger;
+    private volatile ServerLoadListener serverLoadListener;
+
     public AbstractReactiveLoadBalancerAwareClient(ILoadBalancer lb) {
         super(lb);
     }
@@ -44,21 +51,129 @@ public abstract class AbstractReactiveLoadBalancerAwareClient<S extends ClientRe
         return executeWithLoadBalancer(request, null);
     }
 
+    /**
+     * Falls back to Ribbon's RxJava 1 based {@link LoadBalancerCommand} instead of {@link ReactorLoadBalancerCommand}.
+     */
+    public void setRxJavaBridge(boolean rxJavaBridge) {
+        this.rxJavaBridge = rxJavaBridge;
+    }
+
+    public boolean isRxJavaBridge() {
+        return rxJavaBridge;
+    }
+
+    /**
+     * Hedges the requests which {@link #isHedgeable(ClientRequest)} accepts, {@code null} disables hedging.
+     * Hedging is not supported by the RxJava bridge.
+     */
+    public void setHedgePolicy(HedgePolicy hedgePolicy) {
+        this.requestHedger = hedgePolicy != null ? new RequestHedger(hedgePolicy) : null;
+    }
+
+    public HedgePolicy getHedgePolicy() {
+        RequestHedger hedger = requestHedger;
+        return hedger != null ? hedger.getPolicy() : null;
+    }
+
+    /**
+     * @return the hedging state and metrics of this client, or {@code null} when hedging is disabled.
+     */
+    public RequestHedger getRequestHedger() {
+        return requestHedger;
+    }
+
+    /**
+     * Reports the start and end of every call to a server. When not set, the rule of a {@link BaseLoadBalancer} is
+     * notified if it implements {@link ServerLoadListener}.
+     */
+    public void setServerLoadListener(ServerLoadListener serverLoadListener) {
+        this.serverLoadListener = serverLoadListener;
+    }
+
+    public ServerLoadListener getServerLoadListener() {
+        ServerLoadListener listener = serverLoadListener;
+        if (listener != null) {
+            return listener;
+        }
+        ILoadBalancer lb = getLoadBalancer();
+        if (lb instanceof BaseLoadBalancer) {
+            IRule rule = ((BaseLoadBalancer) lb).getRule();
+            if (rule instanceof ServerLoadListener) {
+                return (ServerLoadListener) rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called with every server a request is sent to, including retries and hedges.
+     */
+    protected void onServerChosen(Server server) {
+        // do nothing by default
+    }
+
+    /**
+     * @return the request to send to the given server, by default the request with its URI reconstructed for it.
+     */
+    protected S requestForServer(S request, Server server) {
+        URI finalUri = reconstructURIWithServer(server, request.getUri());
+        return (S) request.replaceUri(finalUri);
+    }
+
+    /**
+     * Releases a response which won't be returned, such as the one of a hedged request which lost the race.
+     */
+    protected void releaseResponse(T response) {
+        // do nothing by default
+    }
+
+    /**
+     * Only idempotent requests may be hedged, none are by default.
+     */
+    protected boolean isHedgeable(S request) {
+        return false;
+    }
+
     public Mono<T> executeWithLoadBalancer(final S request, final IClientConfig requestConfig) throws ClientException {
+        if (rxJavaBridge) {
+            return executeWithRxJavaBridge(request, requestConfig);
+        }
+
+        ReactorLoadBalancerCommand<T> command = buildReactorLoadBalancerCommand(request, requestConfig);
+        return command.submit(server -> executeOnServer(request, requestConfig, server));
+    }
+
+    private Mono<T> executeOnServer(final S request, final IClientConfig requestConfig, final Server server) {
+        onServerChosen(server);
+        S requestForServer = requestForServer(request, server);
+        Mono<T> response;
+        try {
+            response = executeReactive(requestForServer, requestConfig);
+        } catch (Exception e) {
+            response = Mono.error(e);
+        }
+
+        final ServerLoadListener listener = getServerLoadListener();
+        if (listener == null) {
+            return response;
+        }
+        final Mono<T> call = response;
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            listener.callStarted(server);
+            return call
+                    .doOnSuccess(r -> listener.callEnded(server, System.nanoTime() - start, null))
+                    .doOnError(e -> listener.callEnded(server, System.nanoTime() - start, e))
+                    .doOnCancel(() -> listener.callCancelled(server));
+        });
+    }
+
+    private Mono<T> executeWithRxJavaBridge(final S request, final IClientConfig requestConfig) {
         LoadBalancerCommand<T> command = buildLoadBalancerCommand(request, requestConfig);
 
         try {
             Observable<T> observable = command.submit(
-                    server -> {
-                        URI finalUri = reconstructURIWithServer(server, request.getUri());
-                        S requestForServer = (S) request.replaceUri(finalUri);
-                        try {
-                            Mono<T> mono = AbstractReactiveLoadBalancerAwareClient.this.executeReactive(requestForServer, requestConfig);
-                            return RxReactiveStreams.toObservable(mono);
-                        } catch (Exception e) {
-                            return Observable.error(e);
-                        }
-                    });
+                    server -> RxReactiveStreams.toObservable(executeOnServer(request, requestConfig, server)));
             return Mono.from(RxReactiveStreams.toPublisher(observable));
         } catch (Exception e) {
             return Mono.error(e);
@@ -67,6 +182,19 @@ public abstract class AbstractReactiveLoadBalancerAwareClient<S extends ClientRe
     
     public abstract RequestSpecificRetryHandler getRequestSpecificRetryHandler(S request, IClientConfig requestConfig);
 
+    protected ReactorLoadBalancerCommand<T> buildReactorLoadBalancerCommand(final S request, final IClientConfig config) {
+        RequestSpecificRetryHandler handler = getRequestSpecificRetryHandler(request, config);
+        RequestHedger hedger = requestHedger;
+        return ReactorLoadBalancerCommand.<T>builder()
+                .withLoadBalancerContext(this)
+                .withRetryHandler(handler)
+                .withLoadBalancerURI(request.getUri())
+                .withServerLocator(request.getLoadBalancerKey())
+                .withRequestHedger(hedger != null && isHedgeable(request) ? hedger : null)
+                .withDiscardedResponseHandler(this::releaseResponse)
+                .build();
+    }
+
     protected LoadBalancerCommand<T> buildLoadBalancerCommand(final S request, final IClientConfig config) {
 		RequestSpecificRetryHandler handler = getRequestSpecificRetryHandler(request, config);
 		LoadBalancerCommand.Builder<T> builder = LoadBalancerCommand.<T>builder()
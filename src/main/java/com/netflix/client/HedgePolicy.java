@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.client;
+
+import java.time.Duration;
+
+/**
+ * Configuration of hedged requests: when a request hasn't been answered within the hedge delay, the same request is
+ * sent to another server and the first response wins. The delay is either fixed or the given percentile of the
+ * latencies recently observed by the client. Hedges are limited to {@code maxHedgeRatio} of the requests.
+ */
+public final class HedgePolicy {
+    private final long delayMillis;
+    private final double percentile;
+    private final int windowSize;
+    private final double maxHedgeRatio;
+    private final int burst;
+
+    private HedgePolicy(Builder builder) {
+        this.delayMillis = builder.delayMillis;
+        this.percentile = builder.percentile;
+        this.windowSize = builder.windowSize;
+        this.maxHedgeRatio = builder.maxHedgeRatio;
+        this.burst = builder.burst;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Hedges requests which haven't been answered within the given delay.
+     */
+    public static HedgePolicy fixedDelay(Duration delay) {
+        return builder().delay(delay).build();
+    }
+
+    /**
+     * Hedges requests which are slower than the given percentile of the recent latencies, e.g. 0.95.
+     */
+    public static HedgePolicy percentileDelay(double percentile) {
+        return builder().percentile(percentile).build();
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public static final class Builder {
+        private long delayMillis = 100;
+        private double percentile;
+        private int windowSize = 1024;
+        private double maxHedgeRatio = 0.1;
+        private int burst = 10;
+
+        private Builder() {
+        }
+
+        /**
+         * The fixed hedge delay, also used by percentile delays until the latency window has been filled.
+         * Defaults to 100ms.
+         */
+        public Builder delay(Duration delay) {
+            if (delay.isNegative()) {
+                throw new IllegalArgumentException("delay must not be negative");
+            }
+            this.delayMillis = delay.toMillis();
+            return this;
+        }
+
+        /**
+         * Derives the hedge delay from the given percentile of the last {@code windowSize} latencies.
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile >= 1) {
+                throw new IllegalArgumentException("percentile must be between 0 and 1 but was " + percentile);
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        public Builder windowSize(int windowSize) {
+            if (windowSize < 16) {
+                throw new IllegalArgumentException("windowSize must be at least 16 but was " + windowSize);
+            }
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Caps hedges at the given fraction of the requests, on top of a burst of {@code burst} hedges.
+         * Defaults to 10% and a burst of 10.
+         */
+        public Builder maxHedgeRatio(double maxHedgeRatio, int burst) {
+            if (maxHedgeRatio < 0 || burst < 1) {
+                throw new IllegalArgumentException("maxHedgeRatio must not be negative and burst must be positive");
+            }
+            this.maxHedgeRatio = maxHedgeRatio;
+            this.burst = burst;
+            return this;
+        }
+
+        public HedgePolicy build() {
+            return new HedgePolicy(this);
+        }
+    }
+}
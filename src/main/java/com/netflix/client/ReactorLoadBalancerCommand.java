@@ -0,0 +1,244 @@
+/*
+*
+* Copyright 2013 Netflix, Inc.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*
+*/
+package com.netflix.client;
+
+import com.netflix.loadbalancer.LoadBalancerContext;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Reactor counterpart of {@link com.netflix.loadbalancer.reactive.LoadBalancerCommand}. Selects a server, retries on
+ * the same and on the next server as the {@link RetryHandler} allows, and keeps the {@link ServerStats} up to date,
+ * without converting from and to RxJava 1 observables.
+ * <p>
+ * With a {@link RequestHedger}, requests which haven't been answered within the hedge delay are sent to a second
+ * server as well. The first response wins and the other request is cancelled. A response the other request still
+ * produced is handed to the {@link Builder#withDiscardedResponseHandler discarded response handler}.
+ */
+public class ReactorLoadBalancerCommand<T> {
+
+    private final LoadBalancerContext loadBalancerContext;
+    private final RetryHandler retryHandler;
+    private final URI loadBalancerURI;
+    private final Object loadBalancerKey;
+    private final RequestHedger requestHedger;
+    private final Consumer<? super T> discardedResponseHandler;
+
+    private ReactorLoadBalancerCommand(Builder<T> builder) {
+        this.loadBalancerContext = builder.loadBalancerContext;
+        this.retryHandler = builder.retryHandler != null ? builder.retryHandler : loadBalancerContext.getRetryHandler();
+        this.loadBalancerURI = builder.loadBalancerURI;
+        this.loadBalancerKey = builder.loadBalancerKey;
+        this.requestHedger = builder.requestHedger;
+        this.discardedResponseHandler = builder.discardedResponseHandler;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Executes the operation on a server chosen by the load balancer. The returned {@link Mono} is lazy, every
+     * subscription selects a server of its own.
+     */
+    public Mono<T> submit(final Function<Server, Mono<T>> operation) {
+        if (requestHedger != null) {
+            return Mono.defer(() -> submitHedged(operation));
+        }
+        return submit(selectServer(), operation);
+    }
+
+    private Mono<T> submit(Mono<Server> selectServer, Function<Server, Mono<T>> operation) {
+        final int maxRetriesOnSameServer = retryHandler.getMaxRetriesOnSameServer();
+        final int maxRetriesOnNextServer = retryHandler.getMaxRetriesOnNextServer();
+
+        Mono<T> onSelectedServer = selectServer.flatMap(server -> {
+            Mono<T> attempt = Mono.defer(() -> executeOnServer(server, operation));
+            return maxRetriesOnSameServer > 0
+                    ? attempt.retry(maxRetriesOnSameServer, e -> retryHandler.isRetriableException(e, true))
+                    : attempt;
+        });
+
+        return maxRetriesOnNextServer > 0
+                ? onSelectedServer.retry(maxRetriesOnNextServer, e -> retryHandler.isRetriableException(e, false))
+                : onSelectedServer;
+    }
+
+    private Mono<T> submitHedged(Function<Server, Mono<T>> operation) {
+        final long start = System.nanoTime();
+        final AtomicReference<Server> primaryServer = new AtomicReference<>();
+        // A failed request only fails the whole call when the other one isn't running anymore.
+        final AtomicInteger runningRequests = new AtomicInteger(1);
+        final AtomicBoolean answered = new AtomicBoolean();
+        requestHedger.onRequest();
+
+        // Only the primary's own latency is recorded, the hedge's would skew the window towards the faster server.
+        Mono<T> primary = submit(selectServer().doOnNext(primaryServer::set),
+                server -> answer(operation, server, answered, false))
+                .doOnSuccess(response -> requestHedger.recordLatency(
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)))
+                .onErrorResume(e -> failIfLast(runningRequests, e));
+
+        Mono<T> hedge = Mono.delay(Duration.ofMillis(requestHedger.getDelayMillis()))
+                .flatMap(tick -> {
+                    Server server = selectOtherServer(primaryServer.get());
+                    if (server == null || answered.get() || !requestHedger.tryHedge()) {
+                        return Mono.never();
+                    }
+                    runningRequests.incrementAndGet();
+                    return Mono.defer(() -> executeOnServer(server, s -> answer(operation, s, answered, true)))
+                            .onErrorResume(e -> failIfLast(runningRequests, e));
+                });
+
+        return Mono.first(primary, hedge);
+    }
+
+    /**
+     * Only the first response is passed on. When both arrive at once, the other one would be dropped by
+     * {@link Mono#first} or by the operators it cancels, so it's discarded as soon as the operation emits it and its
+     * request never completes, until {@link Mono#first} cancels it.
+     */
+    private Mono<T> answer(Function<Server, Mono<T>> operation, Server server, AtomicBoolean answered,
+                           boolean hedge) {
+        return operation.apply(server).flatMap(response -> {
+            if (answered.compareAndSet(false, true)) {
+                if (hedge) {
+                    requestHedger.onHedgeWin();
+                }
+                return Mono.just(response);
+            }
+            discardedResponseHandler.accept(response);
+            return Mono.never();
+        });
+    }
+
+    private Mono<T> failIfLast(AtomicInteger runningRequests, Throwable e) {
+        return runningRequests.decrementAndGet() > 0 ? Mono.never() : Mono.error(e);
+    }
+
+    private Server selectOtherServer(Server primaryServer) {
+        for (int i = 0; i < 3; i++) {
+            try {
+                Server server = loadBalancerContext.getServerFromLoadBalancer(loadBalancerURI, loadBalancerKey);
+                if (server != null && !server.equals(primaryServer)) {
+                    return server;
+                }
+            } catch (ClientException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private Mono<Server> selectServer() {
+        return Mono.fromCallable(() -> loadBalancerContext.getServerFromLoadBalancer(loadBalancerURI, loadBalancerKey));
+    }
+
+    private Mono<T> executeOnServer(Server server, Function<Server, Mono<T>> operation) {
+        final ServerStats stats = loadBalancerContext.getServerStats(server);
+        final long start = System.nanoTime();
+        loadBalancerContext.noteOpenConnection(stats);
+
+        Mono<T> response;
+        try {
+            response = operation.apply(server);
+        } catch (Throwable e) {
+            response = Mono.error(e);
+        }
+
+        return response
+                .doOnSuccess(r -> noteRequestCompletion(stats, r, null, start))
+                .doOnError(e -> noteRequestCompletion(stats, null, e, start))
+                .doOnCancel(() -> {
+                    if (stats != null) {
+                        stats.decrementActiveRequestsCount();
+                    }
+                });
+    }
+
+    private void noteRequestCompletion(ServerStats stats, Object response, Throwable e, long start) {
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        loadBalancerContext.noteRequestCompletion(stats, response, e, duration, retryHandler);
+    }
+
+    public static class Builder<T> {
+        private LoadBalancerContext loadBalancerContext;
+        private RetryHandler retryHandler;
+        private URI loadBalancerURI;
+        private Object loadBalancerKey;
+        private RequestHedger requestHedger;
+        private Consumer<? super T> discardedResponseHandler = response -> {
+        };
+
+        private Builder() {
+        }
+
+        public Builder<T> withLoadBalancerContext(LoadBalancerContext loadBalancerContext) {
+            this.loadBalancerContext = loadBalancerContext;
+            return this;
+        }
+
+        public Builder<T> withRetryHandler(RetryHandler retryHandler) {
+            this.retryHandler = retryHandler;
+            return this;
+        }
+
+        public Builder<T> withLoadBalancerURI(URI loadBalancerURI) {
+            this.loadBalancerURI = loadBalancerURI;
+            return this;
+        }
+
+        public Builder<T> withServerLocator(Object loadBalancerKey) {
+            this.loadBalancerKey = loadBalancerKey;
+            return this;
+        }
+
+        /**
+         * Hedges the requests of this command, {@code null} (the default) disables hedging.
+         */
+        public Builder<T> withRequestHedger(RequestHedger requestHedger) {
+            this.requestHedger = requestHedger;
+            return this;
+        }
+
+        /**
+         * Called with the response of a hedged request which lost the race, e.g. to release its connection.
+         */
+        public Builder<T> withDiscardedResponseHandler(Consumer<? super T> discardedResponseHandler) {
+            this.discardedResponseHandler = discardedResponseHandler;
+            return this;
+        }
+
+        public ReactorLoadBalancerCommand<T> build() {
+            if (loadBalancerContext == null) {
+                throw new IllegalArgumentException("loadBalancerContext is null");
+            }
+            return new ReactorLoadBalancerCommand<>(this);
+        }
+    }
+}
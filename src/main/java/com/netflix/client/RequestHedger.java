@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per client state of a {@link HedgePolicy}: the latency window, the hedge budget and the hedging metrics.
+ */
+public final class RequestHedger {
+    private static final long TOKEN = 1000;
+
+    private final HedgePolicy policy;
+    private final AtomicLongArray latencies;
+    private final int recomputeInterval;
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private volatile long delayMillis;
+
+    public RequestHedger(HedgePolicy policy) {
+        this.policy = policy;
+        this.latencies = new AtomicLongArray(policy.getWindowSize());
+        this.recomputeInterval = Math.max(1, policy.getWindowSize() / 8);
+        this.deposit = (long) (policy.getMaxHedgeRatio() * TOKEN);
+        this.capacity = policy.getBurst() * TOKEN;
+        this.balance = new AtomicLong(capacity);
+        this.delayMillis = policy.getDelayMillis();
+    }
+
+    public HedgePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the current hedge delay.
+     */
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * @return the fraction of the requests which were hedged.
+     */
+    public double getHedgeRate() {
+        long total = requests.get();
+        return total == 0 ? 0 : (double) hedges.get() / total;
+    }
+
+    /**
+     * @return the fraction of the hedges which answered before the original request.
+     */
+    public double getWinRate() {
+        long total = hedges.get();
+        return total == 0 ? 0 : (double) hedgeWins.get() / total;
+    }
+
+    void onRequest() {
+        requests.incrementAndGet();
+        long current;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    boolean tryHedge() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    void onHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    void recordLatency(long latencyMillis) {
+        if (policy.getPercentile() <= 0) {
+            return;
+        }
+        long sample = samples.getAndIncrement();
+        int windowSize = latencies.length();
+        latencies.set((int) (sample % windowSize), latencyMillis);
+        // The percentile is only recomputed every few samples, once the window has been filled.
+        long recorded = sample + 1;
+        if (recorded == windowSize || (recorded > windowSize && recorded % recomputeInterval == 0)) {
+            delayMillis = percentile(windowSize);
+        }
+    }
+
+    private long percentile(int windowSize) {
+        long[] sorted = new long[windowSize];
+        for (int i = 0; i < windowSize; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(windowSize - 1, Math.ceil(policy.getPercentile() * windowSize) - 1)];
+    }
+}
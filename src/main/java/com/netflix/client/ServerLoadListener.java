@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.client;
+
+import com.netflix.loadbalancer.Server;
+
+/**
+ * Notified of every call {@link AbstractReactiveLoadBalancerAwareClient} sends to a server, including retries and
+ * hedges. Load balancer rules implementing it are registered automatically, see
+ * {@link AbstractReactiveLoadBalancerAwareClient#setServerLoadListener(ServerLoadListener)}.
+ */
+public interface ServerLoadListener {
+
+    void callStarted(Server server);
+
+    /**
+     * @param durationNanos the time from the start of the call to its end
+     * @param error         the failure of the call, or {@code null} when it completed
+     */
+    void callEnded(Server server, long durationNanos, Throwable error);
+
+    /**
+     * The call was cancelled before it ended, e.g. when a hedge answered first. Its duration says nothing about the
+     * server.
+     */
+    void callCancelled(Server server);
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Batches the calls of a single item method, which takes the item key as its only argument and returns
+ * {@code Mono<V>}, into calls of a bulk method of the same interface. The bulk method takes a {@code List} of keys and
+ * returns either {@code Mono<List<V>>}, holding the values in the order of the keys, or {@code Mono<Map<K, V>>}.
+ * <p>
+ * Calls are collected until {@code maxSize} calls are pending or {@code windowMillis} passed since the first one.
+ * A batch of a single call is sent through the single item method itself.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Batch {
+
+    /**
+     * The name of the bulk method.
+     */
+    String method();
+
+    int maxSize() default 100;
+
+    long windowMillis() default 10;
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import feign.InvocationHandlerFactory.MethodHandler;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static feign.Util.checkArgument;
+
+/**
+ * Collects the calls of a {@link Batch} annotated method and sends them through its bulk method, completing each
+ * call with its own value of the bulk response.
+ */
+final class BatchingMethodHandler implements MethodHandler {
+    private final MethodHandler single;
+    private final MethodHandler bulk;
+    private final boolean keyed;
+    private final int maxSize;
+    private final long windowMillis;
+    private final Scheduler scheduler = Schedulers.parallel();
+
+    private List<PendingCall> pending = new ArrayList<>();
+    private long generation;
+
+    private BatchingMethodHandler(MethodHandler single, MethodHandler bulk, boolean keyed, Batch batch) {
+        this.single = single;
+        this.bulk = bulk;
+        this.keyed = keyed;
+        this.maxSize = batch.maxSize();
+        this.windowMillis = batch.windowMillis();
+    }
+
+    /**
+     * Validates the single item and bulk methods and wraps their handlers.
+     */
+    static MethodHandler create(Method method, Batch batch, MethodHandler single,
+                                Method bulkMethod, MethodHandler bulk, DecodingPlan bulkPlan) {
+        checkArgument(batch.maxSize() > 1, "@Batch maxSize of %s must be greater than 1", method.getName());
+        if (method.getParameterCount() != 1 || !Utils.isMono(method.getReturnType())) {
+            throw new FeignException(String.format(
+                    "@Batch method %s must take a single key argument and return Mono.", method.getName()));
+        }
+        if (bulkMethod == null || bulk == null || bulkMethod.getParameterCount() != 1
+                || !Collection.class.isAssignableFrom(bulkMethod.getParameterTypes()[0])
+                || !Utils.isMono(bulkPlan.publisherType())) {
+            throw new FeignException(String.format(
+                    "Bulk method %s of %s must take a List of keys and return Mono of a List or a Map.",
+                    batch.method(), method.getName()));
+        }
+
+        Type bulkType = bulkPlan.elementType();
+        Class<?> bulkClass = (Class<?>) (bulkType instanceof ParameterizedType
+                ? ((ParameterizedType) bulkType).getRawType()
+                : bulkType);
+        if (!List.class.isAssignableFrom(bulkClass) && !Map.class.isAssignableFrom(bulkClass)) {
+            throw new FeignException(String.format(
+                    "Bulk method %s of %s must return Mono of a List or a Map.", batch.method(), method.getName()));
+        }
+        return new BatchingMethodHandler(single, bulk, Map.class.isAssignableFrom(bulkClass), batch);
+    }
+
+    @Override
+    public Object invoke(Object[] argv) {
+        return Mono.defer(() -> {
+            PendingCall call = new PendingCall(argv);
+            List<PendingCall> full = add(call);
+            if (full != null) {
+                send(full);
+            }
+            return call.result;
+        });
+    }
+
+    private synchronized List<PendingCall> add(PendingCall call) {
+        pending.add(call);
+        if (pending.size() >= maxSize) {
+            return drain();
+        }
+        if (pending.size() == 1) {
+            final long batchGeneration = generation;
+            scheduler.schedule(() -> sendWindow(batchGeneration), windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return null;
+    }
+
+    private void sendWindow(long batchGeneration) {
+        List<PendingCall> batch;
+        synchronized (this) {
+            // The batch may already have been sent when it reached maxSize.
+            if (batchGeneration != generation || pending.isEmpty()) {
+                return;
+            }
+            batch = drain();
+        }
+        send(batch);
+    }
+
+    private List<PendingCall> drain() {
+        List<PendingCall> batch = pending;
+        pending = new ArrayList<>(Math.min(batch.size(), maxSize));
+        generation++;
+        return batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void send(List<PendingCall> batch) {
+        if (batch.size() == 1) {
+            PendingCall call = batch.get(0);
+            invoke(single, call.argv).subscribe(call.result);
+            return;
+        }
+
+        List<Object> keys = new ArrayList<>(batch.size());
+        for (PendingCall call : batch) {
+            keys.add(call.argv[0]);
+        }
+        invoke(bulk, new Object[]{keys}).subscribe(
+                values -> {
+                    if (keyed) {
+                        Map<Object, Object> byKey = (Map<Object, Object>) values;
+                        for (PendingCall call : batch) {
+                            complete(call, byKey.get(call.argv[0]));
+                        }
+                    } else {
+                        List<Object> inOrder = (List<Object>) values;
+                        if (inOrder.size() != batch.size()) {
+                            fail(batch, new FeignException(String.format(
+                                    "Bulk response holds %s values for %s keys.", inOrder.size(), batch.size())));
+                            return;
+                        }
+                        for (int i = 0; i < batch.size(); i++) {
+                            complete(batch.get(i), inOrder.get(i));
+                        }
+                    }
+                },
+                error -> fail(batch, error),
+                () -> {
+                    // An empty bulk response leaves every call without a value.
+                    for (PendingCall call : batch) {
+                        call.result.onComplete();
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Mono<Object> invoke(MethodHandler handler, Object[] argv) {
+        try {
+            return (Mono<Object>) handler.invoke(argv);
+        } catch (Throwable e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static void complete(PendingCall call, Object value) {
+        if (value != null) {
+            call.result.onNext(value);
+        } else {
+            call.result.onComplete();
+        }
+    }
+
+    private static void fail(List<PendingCall> batch, Throwable error) {
+        for (PendingCall call : batch) {
+            call.result.onError(error);
+        }
+    }
+
+    private static final class PendingCall {
+        private final Object[] argv;
+        private final MonoProcessor<Object> result = MonoProcessor.create();
+
+        private PendingCall(Object[] argv) {
+            this.argv = argv;
+        }
+    }
+}
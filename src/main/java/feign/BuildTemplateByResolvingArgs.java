@@ -30,8 +30,48 @@ public class BuildTemplateByResolvingArgs implements RequestTemplate.Factory {
     protected final MethodMetadata metadata;
     private final Map<Integer, Param.Expander> indexToExpander = new LinkedHashMap<>();
 
+    // Compiled from the metadata once, so that create() only walks arrays.
+    private final int[] variableIndexes;
+    private final String[][] variableNames;
+    private final Param.Expander[] variableExpanders;
+    private final int variablesCapacity;
+    private final boolean requiresResolve;
+    private final CompiledTemplate compiled;
+
     public BuildTemplateByResolvingArgs(MethodMetadata metadata) {
+        this(metadata, false);
+    }
+
+    /**
+     * @param alwaysResolve whether {@link #resolve(Object[], RequestTemplate, Map)} must run even when the method's
+     *                      template has nothing to resolve, as when it encodes the body.
+     */
+    protected BuildTemplateByResolvingArgs(MethodMetadata metadata, boolean alwaysResolve) {
         this.metadata = metadata;
+        initExpanders(metadata);
+
+        Map<Integer, Collection<String>> indexToName = metadata.indexToName();
+        this.variableIndexes = new int[indexToName.size()];
+        this.variableNames = new String[indexToName.size()][];
+        this.variableExpanders = new Param.Expander[indexToName.size()];
+        int i = 0;
+        int names = 0;
+        for (Map.Entry<Integer, Collection<String>> entry : indexToName.entrySet()) {
+            variableIndexes[i] = entry.getKey();
+            variableNames[i] = entry.getValue().toArray(new String[entry.getValue().size()]);
+            variableExpanders[i] = indexToExpander.get(entry.getKey());
+            names += variableNames[i].length;
+            i++;
+        }
+        this.variablesCapacity = names * 4 / 3 + 1;
+        this.requiresResolve = alwaysResolve || variableIndexes.length > 0 || hasExpressions(metadata.template());
+        // Subclasses resolve with encoders and the URI parameter prepends an unresolved url, both need resolve().
+        this.compiled = requiresResolve && !alwaysResolve && metadata.urlIndex() == null
+                ? CompiledTemplate.compile(metadata.template(), variableIndexes, variableNames, variableExpanders)
+                : null;
+    }
+
+    private void initExpanders(MethodMetadata metadata) {
         if (metadata.indexToExpander() != null) {
             indexToExpander.putAll(metadata.indexToExpander());
             return;
@@ -52,29 +92,39 @@ public class BuildTemplateByResolvingArgs implements RequestTemplate.Factory {
         }
     }
 
-    @Override
-    public RequestTemplate create(Object[] argv) {
-        RequestTemplate mutable = new RequestTemplate(metadata.template());
-        if (metadata.urlIndex() != null) {
-            int urlIndex = metadata.urlIndex();
-            checkArgument(argv[urlIndex] != null, "URI parameter %s was null", urlIndex);
-            mutable.insert(0, String.valueOf(argv[urlIndex]));
+    /**
+     * Whether resolving the template with no variables could still change it: unresolved expressions are dropped
+     * from queries, '+' is re-encoded in the url and body templates are decoded.
+     */
+    private static boolean hasExpressions(RequestTemplate template) {
+        if (template.bodyTemplate() != null || template.url().indexOf('{') >= 0 || template.url().indexOf('+') >= 0) {
+            return true;
         }
-        Map<String, Object> varBuilder = new LinkedHashMap<String, Object>();
-        for (Map.Entry<Integer, Collection<String>> entry : metadata.indexToName().entrySet()) {
-            int i = entry.getKey();
-            Object value = argv[entry.getKey()];
-            if (value != null) { // Null values are skipped.
-                if (indexToExpander.containsKey(i)) {
-                    value = indexToExpander.get(i).expand(value);
-                }
-                for (String name : entry.getValue()) {
-                    varBuilder.put(name, value);
-                }
+        for (Map.Entry<String, Collection<String>> query : template.queries().entrySet()) {
+            if (query.getKey().indexOf('{') >= 0 || containsExpression(query.getValue())) {
+                return true;
+            }
+        }
+        for (Collection<String> values : template.headers().values()) {
+            if (containsExpression(values)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        RequestTemplate template = resolve(argv, mutable, varBuilder);
+    private static boolean containsExpression(Collection<String> values) {
+        for (String value : values) {
+            if (value != null && value.indexOf('{') >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public RequestTemplate create(Object[] argv) {
+        RequestTemplate template = compiled != null ? compiled.render(argv) : resolve(argv);
         if (metadata.queryMapIndex() != null) {
             // add query map parameters after initial resolve so that they take
             // precedence over any predefined values
@@ -88,26 +138,51 @@ public class BuildTemplateByResolvingArgs implements RequestTemplate.Factory {
         return template;
     }
 
+    private RequestTemplate resolve(Object[] argv) {
+        RequestTemplate mutable = new RequestTemplate(metadata.template());
+        if (metadata.urlIndex() != null) {
+            int urlIndex = metadata.urlIndex();
+            checkArgument(argv[urlIndex] != null, "URI parameter %s was null", urlIndex);
+            mutable.insert(0, String.valueOf(argv[urlIndex]));
+        }
+
+        return requiresResolve ? resolve(argv, mutable, variables(argv)) : mutable;
+    }
+
+    private Map<String, Object> variables(Object[] argv) {
+        Map<String, Object> varBuilder = new LinkedHashMap<String, Object>(variablesCapacity);
+        for (int i = 0; i < variableIndexes.length; i++) {
+            Object value = argv[variableIndexes[i]];
+            if (value != null) { // Null values are skipped.
+                if (variableExpanders[i] != null) {
+                    value = variableExpanders[i].expand(value);
+                }
+                for (String name : variableNames[i]) {
+                    varBuilder.put(name, value);
+                }
+            }
+        }
+        return varBuilder;
+    }
+
     @SuppressWarnings("unchecked")
     private RequestTemplate addHeaderMapHeaders(Object[] argv, RequestTemplate mutable) {
         Map<Object, Object> headerMap = (Map<Object, Object>) argv[metadata.headerMapIndex()];
         for (Map.Entry<Object, Object> currEntry : headerMap.entrySet()) {
             checkState(currEntry.getKey().getClass() == String.class, "HeaderMap key must be a String: %s", currEntry.getKey());
 
-            Collection<String> values = new ArrayList<String>();
-
             Object currValue = currEntry.getValue();
             if (currValue instanceof Iterable<?>) {
+                Collection<String> values = new ArrayList<String>();
                 Iterator<?> iter = ((Iterable<?>) currValue).iterator();
                 while (iter.hasNext()) {
                     Object nextObject = iter.next();
                     values.add(nextObject == null ? null : nextObject.toString());
                 }
+                mutable.header((String) currEntry.getKey(), values);
             } else {
-                values.add(currValue == null ? null : currValue.toString());
+                mutable.header((String) currEntry.getKey(), currValue == null ? null : currValue.toString());
             }
-
-            mutable.header((String) currEntry.getKey(), values);
         }
         return mutable;
     }
@@ -118,24 +193,28 @@ public class BuildTemplateByResolvingArgs implements RequestTemplate.Factory {
         for (Map.Entry<Object, Object> currEntry : queryMap.entrySet()) {
             checkState(currEntry.getKey().getClass() == String.class, "QueryMap key must be a String: %s", currEntry.getKey());
 
-            Collection<String> values = new ArrayList<String>();
-
+            // Encoded here as RequestTemplate would, without copying values that have nothing to encode.
+            String name = encodeIfNotVariable((String) currEntry.getKey());
             Object currValue = currEntry.getValue();
             if (currValue instanceof Iterable<?>) {
+                Collection<String> values = new ArrayList<String>();
                 Iterator<?> iter = ((Iterable<?>) currValue).iterator();
                 while (iter.hasNext()) {
                     Object nextObject = iter.next();
-                    values.add(nextObject == null ? null : nextObject.toString());
+                    values.add(nextObject == null ? null : encodeIfNotVariable(nextObject.toString()));
                 }
+                mutable.query(true, name, values);
             } else {
-                values.add(currValue == null ? null : currValue.toString());
+                mutable.query(true, name, currValue == null ? null : encodeIfNotVariable(currValue.toString()));
             }
-
-            mutable.query((String) currEntry.getKey(), values);
         }
         return mutable;
     }
 
+    private static String encodeIfNotVariable(String value) {
+        return value == null || value.indexOf('{') == 0 ? value : CompiledTemplate.urlEncode(value);
+    }
+
     protected RequestTemplate resolve(Object[] argv, RequestTemplate mutable,
                                       Map<String, Object> variables) {
         return mutable.resolve(variables);
@@ -146,7 +225,7 @@ public class BuildTemplateByResolvingArgs implements RequestTemplate.Factory {
         private final Encoder encoder;
 
         public BuildFormEncodedTemplateFromArgs(MethodMetadata metadata, Encoder encoder) {
-            super(metadata);
+            super(metadata, true);
             this.encoder = encoder;
         }
 
@@ -178,7 +257,7 @@ public class BuildTemplateByResolvingArgs implements RequestTemplate.Factory {
         private final Encoder encoder;
 
         public BuildEncodedTemplateFromArgs(MethodMetadata metadata, Encoder encoder) {
-            super(metadata);
+            super(metadata, true);
             this.encoder = encoder;
         }
 
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Circuit breaker of a single method of a target, see {@link CircuitBreakerPolicy}. Every state is an immutable
+ * {@link Phase} with its own window, and transitions are compare-and-set of the current phase, so outcomes of calls
+ * which started in a former phase are ignored.
+ */
+final class CircuitBreaker {
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int CALL = 1;
+    private static final int FAILURE = 2;
+    private static final int SLOW = 4;
+
+    private final String name;
+    private final CircuitBreakerPolicy policy;
+    private final AtomicReference<Phase> phase;
+
+    CircuitBreaker(String name, CircuitBreakerPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.phase = new AtomicReference<>(closed());
+    }
+
+    State state() {
+        return phase.get().state;
+    }
+
+    Mono<ClientResponse> protect(Mono<ClientResponse> exchange) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            final Phase acquired = tryAcquire(start);
+            if (acquired == null) {
+                return Mono.error(new CircuitBreakerOpenException(
+                        String.format("Circuit breaker of %s is open", name)));
+            }
+            return exchange
+                    .doOnSuccess(response -> onResult(acquired, false, start))
+                    .doOnError(error -> onResult(acquired, policy.isFailure(error), start))
+                    .doOnCancel(() -> onCancel(acquired));
+        });
+    }
+
+    private Phase tryAcquire(long now) {
+        for (; ; ) {
+            Phase current = phase.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current;
+                case OPEN:
+                    if (now - current.openedAt < policy.waitInOpenStateNanos()) {
+                        return null;
+                    }
+                    phase.compareAndSet(current, halfOpen());
+                    break;
+                default:
+                    return tryAcquirePermit(current.permits) ? current : null;
+            }
+        }
+    }
+
+    private static boolean tryAcquirePermit(AtomicInteger permits) {
+        int left;
+        do {
+            left = permits.get();
+            if (left <= 0) {
+                return false;
+            }
+        } while (!permits.compareAndSet(left, left - 1));
+        return true;
+    }
+
+    private void onResult(Phase acquired, boolean failure, long start) {
+        long now = System.nanoTime();
+        acquired.window.record(failure, now - start >= policy.slowCallNanos(), now);
+        if (phase.get() != acquired) {
+            return;
+        }
+        if (acquired.state == State.CLOSED) {
+            if (exceeded(acquired.window, policy.minimumCalls(), now)) {
+                phase.compareAndSet(acquired, open(now));
+            }
+        } else if (exceeded(acquired.window, policy.halfOpenCalls(), now)) {
+            phase.compareAndSet(acquired, open(now));
+        } else if (acquired.window.calls(now) >= policy.halfOpenCalls()) {
+            phase.compareAndSet(acquired, closed());
+        }
+    }
+
+    private void onCancel(Phase acquired) {
+        if (acquired.state == State.HALF_OPEN) {
+            // The probe didn't complete, another call may take its place.
+            acquired.permits.incrementAndGet();
+        }
+    }
+
+    private boolean exceeded(Window window, int minimumCalls, long now) {
+        int calls = window.calls(now);
+        if (calls < minimumCalls) {
+            return false;
+        }
+        return window.failures(now) >= policy.failureRateThreshold() * calls
+                || window.slowCalls(now) >= policy.slowCallRateThreshold() * calls;
+    }
+
+    private Phase closed() {
+        Window window = policy.windowType() == CircuitBreakerPolicy.WindowType.COUNT
+                ? new CountWindow(policy.windowSize())
+                : new TimeWindow(policy.windowSize());
+        return new Phase(State.CLOSED, window, 0, 0);
+    }
+
+    private Phase open(long now) {
+        return new Phase(State.OPEN, null, now, 0);
+    }
+
+    private Phase halfOpen() {
+        return new Phase(State.HALF_OPEN, new CountWindow(policy.halfOpenCalls()), 0, policy.halfOpenCalls());
+    }
+
+    private static final class Phase {
+        private final State state;
+        private final Window window;
+        private final long openedAt;
+        private final AtomicInteger permits;
+
+        private Phase(State state, Window window, long openedAt, int permits) {
+            this.state = state;
+            this.window = window;
+            this.openedAt = openedAt;
+            this.permits = new AtomicInteger(permits);
+        }
+    }
+
+    private interface Window {
+        void record(boolean failure, boolean slow, long now);
+
+        int calls(long now);
+
+        int failures(long now);
+
+        int slowCalls(long now);
+    }
+
+    /**
+     * Ring of the outcomes of the last calls, with running totals adjusted by every overwritten outcome.
+     */
+    private static final class CountWindow implements Window {
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong index = new AtomicLong();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        private CountWindow(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        @Override
+        public void record(boolean failure, boolean slow, long now) {
+            int outcome = CALL | (failure ? FAILURE : 0) | (slow ? SLOW : 0);
+            int slot = (int) (index.getAndIncrement() % outcomes.length());
+            int replaced = outcomes.getAndSet(slot, outcome);
+            if (replaced == 0) {
+                calls.incrementAndGet();
+            }
+            failures.addAndGet(bit(outcome, FAILURE) - bit(replaced, FAILURE));
+            slowCalls.addAndGet(bit(outcome, SLOW) - bit(replaced, SLOW));
+        }
+
+        @Override
+        public int calls(long now) {
+            return calls.get();
+        }
+
+        @Override
+        public int failures(long now) {
+            return failures.get();
+        }
+
+        @Override
+        public int slowCalls(long now) {
+            return slowCalls.get();
+        }
+
+        private static int bit(int outcome, int flag) {
+            return (outcome & flag) != 0 ? 1 : 0;
+        }
+    }
+
+    /**
+     * One bucket per second of the window, buckets of former seconds are replaced when their slot is reused.
+     */
+    private static final class TimeWindow implements Window {
+        private final AtomicReferenceArray<Bucket> buckets;
+
+        private TimeWindow(int seconds) {
+            this.buckets = new AtomicReferenceArray<>(seconds);
+        }
+
+        @Override
+        public void record(boolean failure, boolean slow, long now) {
+            Bucket bucket = bucket(TimeUnit.NANOSECONDS.toSeconds(now));
+            bucket.calls.incrementAndGet();
+            if (failure) {
+                bucket.failures.incrementAndGet();
+            }
+            if (slow) {
+                bucket.slowCalls.incrementAndGet();
+            }
+        }
+
+        private Bucket bucket(long second) {
+            int slot = (int) Math.floorMod(second, (long) buckets.length());
+            for (; ; ) {
+                Bucket bucket = buckets.get(slot);
+                if (bucket != null && bucket.second == second) {
+                    return bucket;
+                }
+                Bucket fresh = new Bucket(second);
+                if (buckets.compareAndSet(slot, bucket, fresh)) {
+                    return fresh;
+                }
+            }
+        }
+
+        @Override
+        public int calls(long now) {
+            return sum(now, CALL);
+        }
+
+        @Override
+        public int failures(long now) {
+            return sum(now, FAILURE);
+        }
+
+        @Override
+        public int slowCalls(long now) {
+            return sum(now, SLOW);
+        }
+
+        private int sum(long now, int counter) {
+            long second = TimeUnit.NANOSECONDS.toSeconds(now);
+            int sum = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                Bucket bucket = buckets.get(i);
+                if (bucket != null && second - bucket.second < buckets.length()) {
+                    sum += counter == CALL ? bucket.calls.get()
+                            : counter == FAILURE ? bucket.failures.get()
+                            : bucket.slowCalls.get();
+                }
+            }
+            return sum;
+        }
+
+        private static final class Bucket {
+            private final long second;
+            private final AtomicInteger calls = new AtomicInteger();
+            private final AtomicInteger failures = new AtomicInteger();
+            private final AtomicInteger slowCalls = new AtomicInteger();
+
+            private Bucket(long second) {
+                this.second = second;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+
+/**
+ * Configuration of the circuit breakers of a client, every method of every target gets its own breaker.
+ * <p>
+ * A closed circuit opens once at least {@code minimumCalls} calls were recorded in the sliding window and their
+ * failure rate or slow call rate reaches its threshold. An open circuit rejects calls with
+ * {@link CircuitBreakerOpenException} for {@code waitInOpenState}, then lets {@code halfOpenCalls} probe calls through
+ * and closes again unless they reach one of the thresholds as well.
+ */
+public final class CircuitBreakerPolicy {
+    public enum WindowType {
+        /**
+         * The window holds the last {@code windowSize} calls.
+         */
+        COUNT,
+        /**
+         * The window holds the calls of the last {@code windowSize} seconds.
+         */
+        TIME
+    }
+
+    private final WindowType windowType;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long waitInOpenStateNanos;
+    private final int halfOpenCalls;
+    private final Predicate<Throwable> recordFailure;
+
+    private CircuitBreakerPolicy(Builder builder) {
+        this.windowType = builder.windowType;
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = builder.minimumCalls;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallNanos = builder.slowCall.toNanos();
+        this.waitInOpenStateNanos = builder.waitInOpenState.toNanos();
+        this.halfOpenCalls = builder.halfOpenCalls;
+        this.recordFailure = builder.recordFailure;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    WindowType windowType() {
+        return windowType;
+    }
+
+    int windowSize() {
+        return windowSize;
+    }
+
+    int minimumCalls() {
+        return minimumCalls;
+    }
+
+    double failureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    double slowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    long slowCallNanos() {
+        return slowCallNanos;
+    }
+
+    long waitInOpenStateNanos() {
+        return waitInOpenStateNanos;
+    }
+
+    int halfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    boolean isFailure(Throwable error) {
+        return recordFailure.test(error);
+    }
+
+    public static final class Builder {
+        private WindowType windowType = WindowType.COUNT;
+        private int windowSize = 100;
+        private int minimumCalls = 20;
+        private double failureRateThreshold = 0.5;
+        private double slowCallRateThreshold = 1;
+        private Duration slowCall = Duration.ofSeconds(60);
+        private Duration waitInOpenState = Duration.ofSeconds(30);
+        private int halfOpenCalls = 5;
+        private Predicate<Throwable> recordFailure = error -> !(error instanceof HttpClientErrorException);
+
+        Builder() {
+        }
+
+        /**
+         * Defaults to a count based window of the last 100 calls.
+         */
+        public Builder window(WindowType windowType, int windowSize) {
+            checkArgument(windowSize > 0, "windowSize must be positive but was %s", windowSize);
+            this.windowType = checkNotNull(windowType, "windowType");
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * The number of calls the window needs before the circuit may open, defaults to 20.
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            checkArgument(minimumCalls > 0, "minimumCalls must be positive but was %s", minimumCalls);
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * Defaults to 0.5.
+         */
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1,
+                    "failureRateThreshold must be between 0 and 1");
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Calls slower than {@code slowCall} count as slow, the circuit opens once their rate reaches the
+         * threshold. Defaults to 60 seconds and a rate of 1.
+         */
+        public Builder slowCalls(Duration slowCall, double slowCallRateThreshold) {
+            checkArgument(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1,
+                    "slowCallRateThreshold must be between 0 and 1");
+            this.slowCall = checkNotNull(slowCall, "slowCall");
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * Defaults to 30 seconds.
+         */
+        public Builder waitInOpenState(Duration waitInOpenState) {
+            this.waitInOpenState = checkNotNull(waitInOpenState, "waitInOpenState");
+            return this;
+        }
+
+        /**
+         * The number of probe calls of a half open circuit, defaults to 5.
+         */
+        public Builder halfOpenCalls(int halfOpenCalls) {
+            checkArgument(halfOpenCalls > 0, "halfOpenCalls must be positive but was %s", halfOpenCalls);
+            this.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        /**
+         * Decides which errors count as failures, all but 4xx responses by default.
+         */
+        public Builder recordFailure(Predicate<Throwable> recordFailure) {
+            this.recordFailure = checkNotNull(recordFailure, "recordFailure");
+            return this;
+        }
+
+        public CircuitBreakerPolicy build() {
+            return new CircuitBreakerPolicy(this);
+        }
+    }
+}
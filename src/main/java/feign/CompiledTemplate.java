@@ -0,0 +1,427 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static feign.Util.UTF_8;
+
+/**
+ * A method's {@link RequestTemplate} split once into literal and variable segments. Rendering appends the segments
+ * of the url straight into the new template and builds each query and header value once, instead of copying the
+ * method's template and resolving it through a map of variables and a map of their encoded values.
+ * <p>
+ * Renders what {@link RequestTemplate#resolve(Map)} would. Templates it can't render the same way, such as body
+ * templates or unbalanced braces, aren't compiled: {@link #compile} returns null and they keep being resolved.
+ */
+final class CompiledTemplate {
+    private static final Object NO_VALUE = new Object();
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final RequestTemplate skeleton;
+    private final boolean decodeSlash;
+    private final Segment[] url;
+    private final int urlCapacity;
+    private final String[] queryNames;
+    private final Segment[][] queryValues;
+    private final String[] headerNames;
+    private final Segment[][][] headerValues;
+
+    private final int[] variableIndexes;
+    private final int[][] variableSlots;
+    private final Param.Expander[] variableExpanders;
+    private final int slots;
+
+    private CompiledTemplate(RequestTemplate skeleton, Segment[] url, Map<String, Segment[]> queries,
+                             Map<String, Segment[][]> headers, Map<String, Integer> slotsByName,
+                             int[] variableIndexes, String[][] variableNames, Param.Expander[] variableExpanders) {
+        this.skeleton = skeleton;
+        this.decodeSlash = skeleton.decodeSlash();
+        this.url = url;
+        int urlCapacity = 0;
+        for (Segment segment : url) {
+            urlCapacity += segment.slot < 0 ? segment.text.length() : 16;
+        }
+        this.urlCapacity = urlCapacity;
+        this.queryNames = queries.keySet().toArray(new String[queries.size()]);
+        this.queryValues = queries.values().toArray(new Segment[queries.size()][]);
+        this.headerNames = headers.keySet().toArray(new String[headers.size()]);
+        this.headerValues = headers.values().toArray(new Segment[headers.size()][][]);
+        this.variableIndexes = variableIndexes;
+        this.variableExpanders = variableExpanders;
+        this.variableSlots = new int[variableNames.length][];
+        for (int i = 0; i < variableNames.length; i++) {
+            int[] slots = new int[variableNames[i].length];
+            int used = 0;
+            for (String name : variableNames[i]) {
+                Integer slot = slotsByName.get(name);
+                if (slot != null) { // Names the template doesn't use need no slot.
+                    slots[used++] = slot;
+                }
+            }
+            variableSlots[i] = Arrays.copyOf(slots, used);
+        }
+        this.slots = slotsByName.size();
+    }
+
+    /**
+     * @return the compiled template, or null when it can't be rendered the way {@link RequestTemplate#resolve(Map)}
+     * would resolve it.
+     */
+    static CompiledTemplate compile(RequestTemplate template, int[] variableIndexes, String[][] variableNames,
+                                    Param.Expander[] variableExpanders) {
+        if (template.bodyTemplate() != null) {
+            return null;
+        }
+        Map<String, Integer> slotsByName = new LinkedHashMap<>();
+
+        Segment[] url = parse(template.url(), slotsByName, true, template.decodeSlash());
+        if (url == null) {
+            return null;
+        }
+
+        Map<String, List<String>> rawQueries = rawQueries(template);
+        if (rawQueries == null) {
+            return null;
+        }
+        Map<String, Segment[]> queries = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> query : rawQueries.entrySet()) {
+            Segment[] values = new Segment[query.getValue().size()];
+            for (int i = 0; i < values.length; i++) {
+                String value = query.getValue().get(i);
+                // Only values that are a whole expression are resolved, others are kept as they are.
+                values[i] = value.indexOf('{') == 0 && value.indexOf('}') == value.length() - 1
+                        ? new Segment(value, slot(value.substring(1, value.length() - 1), slotsByName))
+                        : new Segment(value, -1);
+            }
+            queries.put(query.getKey(), values);
+        }
+
+        Map<String, Segment[][]> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, Collection<String>> header : template.headers().entrySet()) {
+            Segment[][] values = new Segment[header.getValue().size()][];
+            int i = 0;
+            for (String value : header.getValue()) {
+                values[i] = value == null ? null : parse(value, slotsByName, false, false);
+                if (values[i++] == null) {
+                    return null;
+                }
+            }
+            headers.put(header.getKey(), values);
+        }
+
+        RequestTemplate skeleton = new RequestTemplate().decodeSlash(template.decodeSlash());
+        if (template.method() != null) {
+            skeleton.method(template.method());
+        }
+        if (template.body() != null) {
+            skeleton.body(template.body(), template.charset());
+        }
+        return new CompiledTemplate(skeleton, url, queries, headers, slotsByName,
+                variableIndexes, variableNames, variableExpanders);
+    }
+
+    RequestTemplate render(Object[] argv) {
+        Object[] values = new Object[slots];
+        Arrays.fill(values, NO_VALUE);
+        for (int i = 0; i < variableIndexes.length; i++) {
+            Object value = argv[variableIndexes[i]];
+            if (value != null) { // Null values are skipped.
+                if (variableExpanders[i] != null) {
+                    value = variableExpanders[i].expand(value);
+                }
+                for (int slot : variableSlots[i]) {
+                    values[slot] = value;
+                }
+            }
+        }
+
+        // The whole url is written into one buffer, encoding values as they are appended.
+        StringBuilder path = new StringBuilder(urlCapacity);
+        for (Segment segment : url) {
+            if (segment.slot < 0 || values[segment.slot] == NO_VALUE) {
+                path.append(segment.text);
+            } else {
+                urlEncode(String.valueOf(values[segment.slot]), path, "%20", decodeSlash ? "/" : "%2F");
+            }
+        }
+        RequestTemplate template = new RequestTemplate(skeleton).append(path);
+
+        for (int i = 0; i < queryNames.length; i++) {
+            String[] query = queryValues(queryValues[i], values);
+            if (query.length > 0) {
+                template.query(true, queryNames[i], query);
+            }
+        }
+
+        for (int i = 0; i < headerNames.length; i++) {
+            String[] header = new String[headerValues[i].length];
+            for (int j = 0; j < header.length; j++) {
+                header[j] = headerValue(headerValues[i][j], values);
+            }
+            template.header(headerNames[i], header);
+        }
+        return template;
+    }
+
+    private static String[] queryValues(Segment[] segments, Object[] values) {
+        String[] query = new String[segments.length];
+        int size = 0;
+        for (Segment segment : segments) {
+            if (segment.slot < 0) {
+                query[size++] = segment.text;
+                continue;
+            }
+            Object value = values[segment.slot];
+            if (value instanceof Iterable) {
+                List<String> items = new ArrayList<>();
+                for (Object item : (Iterable<?>) value) {
+                    items.add(urlEncode(String.valueOf(item)));
+                }
+                query = Arrays.copyOf(query, query.length - 1 + items.size());
+                for (String item : items) {
+                    query[size++] = item;
+                }
+            } else if (value != null && value != NO_VALUE) {
+                query[size++] = urlEncode(String.valueOf(value));
+            }
+        }
+        return size == query.length ? query : Arrays.copyOf(query, size);
+    }
+
+    private static String headerValue(Segment[] segments, Object[] values) {
+        if (segments.length == 1) {
+            Object value = segments[0].slot < 0 ? null : values[segments[0].slot];
+            return value == null || value == NO_VALUE ? segments[0].text : String.valueOf(value);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Segment segment : segments) {
+            Object value = segment.slot < 0 ? null : values[segment.slot];
+            builder.append(value == null || value == NO_VALUE ? segment.text : value);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Splits a template the way {@link RequestTemplate#expand(String, Map)} reads it, keeping unresolved expressions
+     * as they were written.
+     *
+     * @return the segments, or null for a nested or unterminated expression.
+     */
+    private static Segment[] parse(String template, Map<String, Integer> slotsByName, boolean path,
+                                   boolean decodeSlash) {
+        if (template.length() < 3) { // Too short to hold an expression.
+            return new Segment[]{literal(template, path, decodeSlash)};
+        }
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int expression = -1;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '{') {
+                if (expression >= 0) {
+                    return null;
+                }
+                expression = i;
+            } else if (c == '}' && expression >= 0) {
+                if (literal.length() > 0) {
+                    segments.add(literal(literal.toString(), path, decodeSlash));
+                    literal.setLength(0);
+                }
+                String name = template.substring(expression + 1, i);
+                Segment placeholder = literal('{' + name + '}', path, decodeSlash);
+                segments.add(new Segment(placeholder.text, slot(name, slotsByName)));
+                expression = -1;
+            } else if (expression < 0) {
+                literal.append(c);
+            }
+        }
+        if (expression >= 0) {
+            return null;
+        }
+        if (literal.length() > 0 || segments.isEmpty()) {
+            segments.add(literal(literal.toString(), path, decodeSlash));
+        }
+        if (path && !adjacentSegmentsKeepEscapes(segments)) {
+            return null;
+        }
+        return segments.toArray(new Segment[segments.size()]);
+    }
+
+    private static Segment literal(String text, boolean path, boolean decodeSlash) {
+        if (path) {
+            text = text.replace("+", "%20");
+            if (decodeSlash) {
+                text = text.replace("%2F", "/");
+            }
+        }
+        return new Segment(text, -1);
+    }
+
+    /**
+     * Path segments are decoded one by one, which is only the same as decoding the whole url when no "%2F" spans two
+     * segments. Encoded values always end on a whole escape, so only a literal ending in a partial one can.
+     */
+    private static boolean adjacentSegmentsKeepEscapes(List<Segment> segments) {
+        for (int i = 0; i < segments.size() - 1; i++) {
+            String text = segments.get(i).text;
+            if (segments.get(i).slot < 0 && (text.endsWith("%") || text.endsWith("%2"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int slot(String name, Map<String, Integer> slotsByName) {
+        Integer slot = slotsByName.get(name);
+        if (slot == null) {
+            slot = slotsByName.size();
+            slotsByName.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * The queries as the template holds them, encoded. {@link RequestTemplate#queries()} only hands out decoded
+     * copies, so they are read back from the query line and checked against those copies.
+     *
+     * @return the queries, or null when the query line can't be read back unambiguously.
+     */
+    private static Map<String, List<String>> rawQueries(RequestTemplate template) {
+        Map<String, List<String>> queries = new LinkedHashMap<>();
+        String line = template.queryLine();
+        if (!line.isEmpty()) {
+            String previous = null;
+            for (String pair : line.substring(1).split("&", -1)) {
+                int equals = pair.indexOf('=');
+                if (equals < 0) { // A query without value, which resolving doesn't handle.
+                    return null;
+                }
+                String name = pair.substring(0, equals);
+                if (!name.equals(previous) && queries.containsKey(name)) {
+                    return null;
+                }
+                List<String> values = queries.get(name);
+                if (values == null) {
+                    values = new ArrayList<>();
+                    queries.put(name, values);
+                }
+                values.add(pair.substring(equals + 1));
+                previous = name;
+            }
+        }
+
+        Map<String, Collection<String>> decoded = template.queries();
+        if (decoded.size() != queries.size()) {
+            return null;
+        }
+        Iterator<Map.Entry<String, List<String>>> raw = queries.entrySet().iterator();
+        for (Map.Entry<String, Collection<String>> query : decoded.entrySet()) {
+            Map.Entry<String, List<String>> next = raw.next();
+            if (!query.getKey().equals(urlDecode(next.getKey()))
+                    || !new ArrayList<>(query.getValue()).equals(urlDecode(next.getValue()))) {
+                return null;
+            }
+        }
+        return queries;
+    }
+
+    private static List<String> urlDecode(List<String> values) {
+        List<String> decoded = new ArrayList<>(values.size());
+        for (String value : values) {
+            decoded.add(urlDecode(value));
+        }
+        return decoded;
+    }
+
+    /**
+     * {@link URLEncoder#encode(String, String)} in UTF-8, without copying values that have nothing to encode.
+     */
+    static String urlEncode(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!isUnreserved(value.charAt(i))) {
+                StringBuilder encoded = new StringBuilder(value.length() + 16);
+                urlEncode(value, encoded, "+", "%2F");
+                return encoded.toString();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Appends the value as {@link URLEncoder#encode(String, String)} encodes it in UTF-8, with spaces and slashes
+     * replaced the way the url of a template is once resolved.
+     */
+    private static void urlEncode(String value, StringBuilder out, String space, String slash) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                try {
+                    String encoded = URLEncoder.encode(value, UTF_8.name());
+                    out.append(encoded.replace("+", space).replace("%2F", slash));
+                } catch (UnsupportedEncodingException e) {
+                    throw new RuntimeException(e);
+                }
+                return;
+            }
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                out.append(c);
+            } else if (c == ' ') {
+                out.append(space);
+            } else if (c == '/') {
+                out.append(slash);
+            } else {
+                out.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                || c == '.' || c == '-' || c == '*' || c == '_';
+    }
+
+    private static String urlDecode(String value) {
+        try {
+            return URLDecoder.decode(value, UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final class Segment {
+        /** The literal, or the expression as written, left in place when its variable has no value. */
+        final String text;
+        /** The variable's slot, or -1 for literals. */
+        final int slot;
+
+        Segment(String text, int slot) {
+            this.text = text;
+            this.slot = slot;
+        }
+    }
+}
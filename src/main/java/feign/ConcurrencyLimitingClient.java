@@ -0,0 +1,389 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+
+/**
+ * Limits the in-flight requests of the delegate client with an AIMD limit per key. The limit grows by one while
+ * requests succeed with at least half of it in use, and is multiplied by {@code backoffRatio} when a request times
+ * out, can't connect, is answered by 429 or 503, or takes longer than {@code slowRequestMillis}.
+ * <p>
+ * Requests are keyed by the host of their URL, which is the client name when this client wraps a
+ * {@code ReactiveRibbonClient}. With {@code perServer}, the port is part of the key as well, which limits every server
+ * on its own when this client is the delegate of a {@code ReactiveRibbonClient}.
+ * <p>
+ * Requests over the limit fail with {@link ConcurrencyLimitExceededException}, or wait for a permit in a bounded
+ * queue when {@code maxQueueSize} is positive.
+ */
+public final class ConcurrencyLimitingClient implements ReactiveClient {
+    private final ReactiveClient delegate;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long slowRequestNanos;
+    private final int maxQueueSize;
+    private final Duration maxWait;
+    private final boolean perServer;
+    private final ReactiveInstrumentation instrumentation;
+    private final ConcurrentMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+    private ConcurrencyLimitingClient(Builder builder) {
+        this.delegate = builder.delegate;
+        this.initialLimit = builder.initialLimit;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.backoffRatio = builder.backoffRatio;
+        this.slowRequestNanos = builder.slowRequestNanos;
+        this.maxQueueSize = builder.maxQueueSize;
+        this.maxWait = builder.maxWait;
+        this.perServer = builder.perServer;
+        this.instrumentation = builder.instrumentation;
+    }
+
+    public static Builder builder(ReactiveClient delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Mono<ClientResponse> executeReactive(Request request, Request.Options options) throws IOException {
+        return executeReactive(request, options, null);
+    }
+
+    @Override
+    public Mono<ClientResponse> executeReactive(Request request, Request.Options options,
+                                                BodyInserter<?, ? super ClientHttpRequest> body) {
+        final Limiter limiter = limiter(request.url());
+        return Mono.defer(() -> {
+            if (limiter.tryAcquire()) {
+                return execute(limiter, request, options, body);
+            }
+            return limiter.await().then(Mono.defer(() -> execute(limiter, request, options, body)));
+        });
+    }
+
+    /**
+     * @return the current limit of the given key, or -1 when no request of the key was made yet.
+     */
+    public int limit(String key) {
+        Limiter limiter = limiters.get(key);
+        return limiter != null ? limiter.limit : -1;
+    }
+
+    public int inFlight(String key) {
+        Limiter limiter = limiters.get(key);
+        return limiter != null ? limiter.inFlight.get() : 0;
+    }
+
+    private Mono<ClientResponse> execute(Limiter limiter, Request request, Request.Options options,
+                                         BodyInserter<?, ? super ClientHttpRequest> body) {
+        final Permit permit = new Permit(limiter);
+        Mono<ClientResponse> response;
+        try {
+            response = delegate.executeReactive(request, options, body);
+        } catch (Throwable e) {
+            response = Mono.error(e);
+        }
+        return response
+                .doOnSuccess(permit::onResponse)
+                .doOnError(permit::onError)
+                .doOnCancel(permit::onCancel);
+    }
+
+    private Limiter limiter(String url) {
+        String key = key(url);
+        Limiter limiter = limiters.get(key);
+        return limiter != null ? limiter : limiters.computeIfAbsent(key, Limiter::new);
+    }
+
+    private String key(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        int userInfo = url.lastIndexOf('@', end - 1);
+        if (userInfo >= start) {
+            start = userInfo + 1;
+        }
+        if (!perServer) {
+            int port = url.lastIndexOf(':', end - 1);
+            if (port >= start && url.lastIndexOf(']', end - 1) < port) {
+                end = port;
+            }
+        }
+        return url.substring(start, end);
+    }
+
+    private final class Limiter {
+        private final String key;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger queueSize = new AtomicInteger();
+        private final Queue<Waiter> queue = new ConcurrentLinkedQueue<>();
+        private final ReactiveInstrumentation.LimiterRecorder recorder;
+        private double estimatedLimit;
+        private volatile int limit;
+
+        private Limiter(String key) {
+            this.key = key;
+            this.estimatedLimit = initialLimit;
+            this.limit = initialLimit;
+            this.recorder = instrumentation.limiterRecorder(key);
+            recorder.limitChanged(limit);
+        }
+
+        private boolean tryAcquire() {
+            if (!queue.isEmpty()) {
+                // Waiting requests go first.
+                return false;
+            }
+            if (inFlight.incrementAndGet() <= limit) {
+                return true;
+            }
+            inFlight.decrementAndGet();
+            return false;
+        }
+
+        private Mono<Void> await() {
+            if (queueSize.incrementAndGet() > maxQueueSize) {
+                queueSize.decrementAndGet();
+                recorder.requestRejected();
+                return Mono.error(new ConcurrencyLimitExceededException(String.format(
+                        "Concurrency limit of %s reached for %s", limit, key)));
+            }
+            final Waiter waiter = new Waiter();
+            queue.offer(waiter);
+            // A permit may have been released before the waiter was queued.
+            drain();
+            return waiter.granted
+                    .doOnCancel(() -> abandon(waiter))
+                    .timeout(maxWait)
+                    .onErrorMap(TimeoutException.class, e -> {
+                        recorder.requestRejected();
+                        return new ConcurrencyLimitExceededException(String.format(
+                                "Timed out after %sms waiting for a permit of %s", maxWait.toMillis(), key));
+                    });
+        }
+
+        private void abandon(Waiter waiter) {
+            if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+                if (queue.remove(waiter)) {
+                    queueSize.decrementAndGet();
+                }
+            } else if (waiter.state.get() == Waiter.GRANTED) {
+                release();
+            }
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+            drain();
+        }
+
+        private void drain() {
+            while (!queue.isEmpty()) {
+                if (inFlight.incrementAndGet() > limit) {
+                    inFlight.decrementAndGet();
+                    return;
+                }
+                Waiter waiter = queue.poll();
+                if (waiter == null) {
+                    inFlight.decrementAndGet();
+                    return;
+                }
+                queueSize.decrementAndGet();
+                if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                    waiter.granted.onComplete();
+                } else {
+                    inFlight.decrementAndGet();
+                }
+            }
+        }
+
+        private void onSample(long latencyNanos, int inFlightAtStart, boolean dropped) {
+            int newLimit;
+            synchronized (this) {
+                if (dropped || latencyNanos > slowRequestNanos) {
+                    estimatedLimit = Math.max(minLimit, estimatedLimit * backoffRatio);
+                } else if (inFlightAtStart * 2 >= estimatedLimit) {
+                    estimatedLimit = Math.min(maxLimit, estimatedLimit + 1);
+                } else {
+                    return;
+                }
+                newLimit = (int) estimatedLimit;
+                if (newLimit == limit) {
+                    return;
+                }
+                limit = newLimit;
+            }
+            recorder.limitChanged(newLimit);
+            if (newLimit > inFlight.get()) {
+                drain();
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final MonoProcessor<Void> granted = MonoProcessor.create();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+    }
+
+    /**
+     * Releases the permit of a single request once, whichever of its signals comes first.
+     */
+    private static final class Permit {
+        private final Limiter limiter;
+        private final long start = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Limiter limiter) {
+            this.limiter = limiter;
+            this.inFlightAtStart = limiter.inFlight.get();
+        }
+
+        private void onResponse(ClientResponse response) {
+            if (released.compareAndSet(false, true)) {
+                HttpStatus status = response != null ? response.statusCode() : null;
+                limiter.onSample(System.nanoTime() - start, inFlightAtStart,
+                        status == HttpStatus.SERVICE_UNAVAILABLE || status == HttpStatus.TOO_MANY_REQUESTS);
+                limiter.release();
+            }
+        }
+
+        private void onError(Throwable error) {
+            if (released.compareAndSet(false, true)) {
+                boolean dropped = error instanceof SocketTimeoutException || error instanceof TimeoutException
+                        || error instanceof ConnectException;
+                limiter.onSample(System.nanoTime() - start, inFlightAtStart, dropped);
+                limiter.release();
+            }
+        }
+
+        private void onCancel() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release();
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final ReactiveClient delegate;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private double backoffRatio = 0.9;
+        private long slowRequestNanos = TimeUnit.SECONDS.toNanos(5);
+        private int maxQueueSize;
+        private Duration maxWait = Duration.ofSeconds(1);
+        private boolean perServer;
+        private ReactiveInstrumentation instrumentation = ReactiveInstrumentation.NOOP;
+
+        Builder(ReactiveClient delegate) {
+            this.delegate = checkNotNull(delegate, "delegate");
+        }
+
+        /**
+         * Bounds of the limit, 20 initially and between 1 and 1000 by default.
+         */
+        public Builder limit(int initialLimit, int minLimit, int maxLimit) {
+            checkArgument(0 < minLimit && minLimit <= initialLimit && initialLimit <= maxLimit,
+                    "limits must satisfy 0 < minLimit <= initialLimit <= maxLimit");
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * The factor applied to the limit when a request is dropped, defaults to 0.9.
+         */
+        public Builder backoffRatio(double backoffRatio) {
+            checkArgument(backoffRatio > 0 && backoffRatio < 1, "backoffRatio must be between 0 and 1");
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Requests slower than this are treated as dropped, defaults to 5 seconds.
+         */
+        public Builder slowRequestMillis(long slowRequestMillis) {
+            this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMillis);
+            return this;
+        }
+
+        /**
+         * Lets up to {@code maxQueueSize} requests over the limit wait at most {@code maxWait} for a permit.
+         * Defaults to no queue, failing such requests right away.
+         */
+        public Builder queue(int maxQueueSize, Duration maxWait) {
+            checkArgument(maxQueueSize >= 0, "maxQueueSize must not be negative");
+            this.maxQueueSize = maxQueueSize;
+            this.maxWait = checkNotNull(maxWait, "maxWait");
+            return this;
+        }
+
+        public Builder perServer(boolean perServer) {
+            this.perServer = perServer;
+            return this;
+        }
+
+        /**
+         * Records the limit and the rejected requests of every key, see {@link ReactiveInstrumentation}.
+         */
+        public Builder instrumentation(ReactiveInstrumentation instrumentation) {
+            this.instrumentation = checkNotNull(instrumentation, "instrumentation");
+            return this;
+        }
+
+
+        public ConcurrencyLimitingClient build() {
+            return new ConcurrencyLimitingClient(this);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import static feign.Utils.getReactiveParameterizedType;
+import static feign.Utils.isFlux;
+
+/**
+ * Immutable description of how the response of a single method is turned into its return value.
+ * It is resolved once, when the method handler is built, so invocations don't inspect types anymore.
+ * <p>
+ * Raw bodies skip the codecs: {@code Mono<byte[]>} and {@code Mono<ByteBuffer>} get the body copied once out of the
+ * pooled buffers, which are released right away. {@code Flux<DataBuffer>} and
+ * {@code Mono<ResponseEntity<Flux<DataBuffer>>>} stream the pooled buffers themselves; the subscriber owns every
+ * buffer it receives and must release it with {@link DataBufferUtils#release}, and the body of a
+ * {@code ResponseEntity} must be subscribed to, or cancelled, exactly once.
+ */
+final class DecodingPlan {
+
+    static final int DEFAULT_MAX_ERROR_BODY_SIZE = 8192;
+
+    private final Class<?> publisherType;
+    private final Type elementType;
+    private final ResolvableType elementResolvableType;
+    private final Function<ClientResponse, Mono<ClientResponse>> errorMapping;
+    private final Function<Mono<ClientResponse>, Publisher<?>> decoder;
+    private final boolean streaming;
+
+    private DecodingPlan(Class<?> publisherType, Type elementType, String methodKey,
+                         ReactiveErrorDecoder errorDecoder, int maxErrorBodySize) {
+        this.publisherType = publisherType;
+        this.elementType = elementType;
+        this.elementResolvableType = ResolvableType.forType(elementType);
+        this.errorMapping = response -> mapErrorStatus(response, methodKey, errorDecoder, maxErrorBodySize);
+
+        final ParameterizedTypeReference<Object> elementTypeReference = ParameterizedTypeReference.forType(elementType);
+        if (isFlux(publisherType)) {
+            if (elementType == DataBuffer.class) {
+                this.decoder = response -> response.flatMapMany(DecodingPlan::dataBuffers);
+                this.streaming = true;
+            } else {
+                // Elements are decoded one by one, demand is propagated down to the connection.
+                final Function<ClientResponse, Publisher<Object>> bodyToFlux = r -> r.bodyToFlux(elementTypeReference);
+                this.decoder = response -> response.flatMapMany(bodyToFlux);
+                this.streaming = false;
+            }
+        } else if (elementType == byte[].class) {
+            this.decoder = response -> response.flatMap(DecodingPlan::bytes);
+            this.streaming = false;
+        } else if (elementType == ByteBuffer.class) {
+            this.decoder = response -> response.flatMap(DecodingPlan::bytes).map(ByteBuffer::wrap);
+            this.streaming = false;
+        } else if (isStreamingResponseEntity(elementType)) {
+            this.decoder = response -> response.map(r -> new ResponseEntity<>(
+                    dataBuffers(r), r.headers().asHttpHeaders(), r.statusCode()));
+            this.streaming = true;
+        } else {
+            final Function<ClientResponse, Mono<Object>> bodyToMono = r -> r.bodyToMono(elementTypeReference);
+            this.decoder = response -> response.flatMap(bodyToMono);
+            this.streaming = false;
+        }
+    }
+
+    static DecodingPlan of(MethodMetadata metadata) {
+        return of(metadata, new ReactiveErrorDecoder.Default(), DEFAULT_MAX_ERROR_BODY_SIZE);
+    }
+
+    static DecodingPlan of(MethodMetadata metadata, ReactiveErrorDecoder errorDecoder, int maxErrorBodySize) {
+        ParameterizedType returnType = getReactiveParameterizedType(metadata.returnType());
+        if (returnType == null) {
+            throw new FeignException(String.format(
+                    "Method %s must return one of the Reactor types Mono or Flux.", metadata.configKey()));
+        }
+        return new DecodingPlan((Class<?>) returnType.getRawType(), returnType.getActualTypeArguments()[0],
+                metadata.configKey(), errorDecoder, maxErrorBodySize);
+    }
+
+    Publisher<?> decode(Mono<ClientResponse> response) {
+        return decodeBody(checkStatus(response));
+    }
+
+    /**
+     * Fails the response with the exception of the {@link ReactiveErrorDecoder} on error statuses.
+     */
+    Mono<ClientResponse> checkStatus(Mono<ClientResponse> response) {
+        return response.flatMap(errorMapping);
+    }
+
+    Publisher<?> decodeBody(Mono<ClientResponse> response) {
+        return decoder.apply(response);
+    }
+
+    Class<?> publisherType() {
+        return publisherType;
+    }
+
+    Type elementType() {
+        return elementType;
+    }
+
+    ResolvableType elementResolvableType() {
+        return elementResolvableType;
+    }
+
+    /**
+     * @return whether the return value holds pooled buffers, so it can't be shared by several calls.
+     */
+    boolean isStreaming() {
+        return streaming;
+    }
+
+    private static boolean isStreamingResponseEntity(Type type) {
+        if (!(type instanceof ParameterizedType) || ((ParameterizedType) type).getRawType() != ResponseEntity.class) {
+            return false;
+        }
+        Type body = ((ParameterizedType) type).getActualTypeArguments()[0];
+        return body instanceof ParameterizedType
+                && ((ParameterizedType) body).getRawType() == Flux.class
+                && ((ParameterizedType) body).getActualTypeArguments()[0] == DataBuffer.class;
+    }
+
+    private static Flux<DataBuffer> dataBuffers(ClientResponse response) {
+        return response.body(BodyExtractors.toDataBuffers());
+    }
+
+    /**
+     * Copies the whole body into a single array, with no intermediate aggregation.
+     */
+    private static Mono<byte[]> bytes(ClientResponse response) {
+        return Mono.using(PooledBuffers::new,
+                buffers -> dataBuffers(response)
+                        .doOnNext(buffers::add)
+                        .then(Mono.fromSupplier(buffers::toByteArray)),
+                PooledBuffers::release);
+    }
+
+    private static Mono<ClientResponse> mapErrorStatus(ClientResponse response, String methodKey,
+                                                       ReactiveErrorDecoder errorDecoder, int maxErrorBodySize) {
+        final HttpStatus status = response.statusCode();
+        if (!status.is4xxClientError() && !status.is5xxServerError()) {
+            return Mono.just(response);
+        }
+        // The whole body is drained, so the connection can be reused, and only its start is kept.
+        return response.body(BodyExtractors.toDataBuffers())
+                .reduceWith(() -> new CappedBody(maxErrorBodySize), CappedBody::append)
+                .flatMap(body -> Mono.<ClientResponse>error(errorDecoder.decode(
+                        methodKey, status, response.headers().asHttpHeaders(), body.toByteArray())));
+    }
+
+    /**
+     * The first bytes of a body, every buffer appended is released.
+     */
+    private static final class CappedBody {
+        private final int maxSize;
+        private byte[] bytes = new byte[0];
+
+        private CappedBody(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private CappedBody append(DataBuffer buffer) {
+            try {
+                int length = Math.min(buffer.readableByteCount(), maxSize - bytes.length);
+                if (length > 0) {
+                    int size = bytes.length;
+                    bytes = Arrays.copyOf(bytes, size + length);
+                    buffer.read(bytes, size, length);
+                }
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            return this;
+        }
+
+        private byte[] toByteArray() {
+            return bytes;
+        }
+    }
+}
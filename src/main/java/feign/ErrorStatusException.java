@@ -0,0 +1,35 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+/**
+ * Holds the status of an error response next to the exception the {@link ReactiveErrorDecoder} mapped it to, while
+ * the {@link ReactiveRetryPolicy} decides whether to retry. Only the cause leaves the retries.
+ */
+final class ErrorStatusException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    ErrorStatusException(int status, Throwable cause) {
+        super(null, cause, false, false);
+        this.status = status;
+    }
+
+    int status() {
+        return status;
+    }
+}
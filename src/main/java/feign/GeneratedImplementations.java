@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import feign.InvocationHandlerFactory.MethodHandler;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the implementations and contracts generated for {@link ReactiveFeignClient} interfaces. The lookups are
+ * made once per interface.
+ */
+final class GeneratedImplementations {
+
+    static final String SUFFIX = "_ReactiveFeign";
+    static final String CONTRACT_SUFFIX = "_ReactiveFeignContract";
+
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                Class<?> implementation = Class.forName(implementationName(type), true, type.getClassLoader());
+                return type.isAssignableFrom(implementation)
+                        ? implementation.getConstructor(Target.class, Map.class)
+                        : null;
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                return null;
+            }
+        }
+    };
+
+    private static final ClassValue<Contract> CONTRACTS = new ClassValue<Contract>() {
+        @Override
+        protected Contract computeValue(Class<?> type) {
+            try {
+                Class<?> contract = Class.forName(
+                        type.getName().replace('$', '_') + CONTRACT_SUFFIX, true, type.getClassLoader());
+                return Contract.class.isAssignableFrom(contract)
+                        ? (Contract) contract.getConstructor().newInstance()
+                        : null;
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    };
+
+    private GeneratedImplementations() {
+    }
+
+    /**
+     * @return the name of the implementation generated for the given interface, e.g.
+     * {@code com.example.Outer_Api_ReactiveFeign} for {@code com.example.Outer.Api}.
+     */
+    static String implementationName(Class<?> type) {
+        return type.getName().replace('$', '_') + SUFFIX;
+    }
+
+    /**
+     * @param handlers the method handlers by their config keys
+     * @return an instance of the generated implementation, or {@code null} when none was generated.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T newInstance(Target<T> target, Map<String, MethodHandler> handlers) {
+        Constructor<?> constructor = CONSTRUCTORS.get(target.type());
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return (T) constructor.newInstance(target, handlers);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException
+                    ? (RuntimeException) cause
+                    : new IllegalStateException(cause);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Can't create " + implementationName(target.type()), e);
+        }
+    }
+
+    /**
+     * @return the metadata parsed by the given contract, taken from the generated contract when the given one is
+     * {@link Contract.Default}, which the generated contract stands for.
+     */
+    static List<MethodMetadata> metadata(Contract contract, Class<?> type) {
+        if (contract.getClass() == Contract.Default.class) {
+            Contract generated = CONTRACTS.get(type);
+            if (generated != null) {
+                return generated.parseAndValidatateMetadata(type);
+            }
+        }
+        return contract.parseAndValidatateMetadata(type);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builds the {@link MethodMetadata} of {@link ReactiveFeignClient} interfaces in the contracts generated for them,
+ * the same way {@link Contract.Default} does from their annotations. Not meant to be used by hand.
+ */
+public final class GeneratedMetadata {
+
+    private static final Type[] NO_TYPES = new Type[0];
+
+    private GeneratedMetadata() {
+    }
+
+    public static MethodMetadata newMetadata(String configKey, Type returnType) {
+        MethodMetadata data = new MethodMetadata();
+        data.configKey(configKey);
+        data.returnType(returnType);
+        return data;
+    }
+
+    /**
+     * Adds the {@link Headers} of a type, the headers already in the template take precedence.
+     */
+    public static void typeHeaders(MethodMetadata data, String... headers) {
+        Map<String, Collection<String>> merged = headers(headers);
+        merged.putAll(data.template().headers());
+        data.template().headers(null);
+        data.template().headers(merged);
+    }
+
+    public static Map<String, Collection<String>> headers(String... headers) {
+        Map<String, Collection<String>> result = new LinkedHashMap<>(headers.length);
+        for (String header : headers) {
+            int colon = header.indexOf(':');
+            result.computeIfAbsent(header.substring(0, colon), name -> new ArrayList<>(1))
+                    .add(header.substring(colon + 2));
+        }
+        return result;
+    }
+
+    /**
+     * Names a {@link Param}, which is a form parameter unless the template refers to it.
+     */
+    public static void param(MethodMetadata data, int index, String name) {
+        data.indexToName().computeIfAbsent(index, i -> new ArrayList<>()).add(name);
+        String variable = '{' + name + '}';
+        if (data.template().url().indexOf(variable) == -1
+                && !queriesContain(data.template().queries(), variable)
+                && !headersContain(data.template().headers(), variable)) {
+            data.formParams().add(name);
+        }
+    }
+
+    private static boolean queriesContain(Map<String, Collection<String>> queries, String variable) {
+        for (Collection<String> values : queries.values()) {
+            if (values.contains(variable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean headersContain(Map<String, Collection<String>> headers, String variable) {
+        for (Collection<String> values : headers.values()) {
+            for (String value : values) {
+                if (value != null && value.contains(variable)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static Type parameterized(Class<?> rawType, Type... arguments) {
+        return new ParameterizedTypeImpl(rawType, arguments);
+    }
+
+    public static Type array(Type componentType) {
+        return new GenericArrayTypeImpl(componentType);
+    }
+
+    /**
+     * @param lowerBound {@code null} for a wildcard without a lower bound
+     */
+    public static Type wildcard(Type upperBound, Type lowerBound) {
+        return new WildcardTypeImpl(upperBound, lowerBound);
+    }
+
+    /**
+     * Equal to the types of {@link java.lang.reflect}, as codecs key their caches by types.
+     */
+    private static final class ParameterizedTypeImpl implements ParameterizedType {
+        private final Class<?> rawType;
+        private final Type[] arguments;
+
+        private ParameterizedTypeImpl(Class<?> rawType, Type[] arguments) {
+            this.rawType = rawType;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return arguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return rawType.getDeclaringClass();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ParameterizedType)) {
+                return false;
+            }
+            ParameterizedType that = (ParameterizedType) other;
+            return rawType.equals(that.getRawType())
+                    && Objects.equals(getOwnerType(), that.getOwnerType())
+                    && Arrays.equals(arguments, that.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(arguments) ^ Objects.hashCode(getOwnerType()) ^ rawType.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder name = new StringBuilder(rawType.getName()).append('<');
+            for (int i = 0; i < arguments.length; i++) {
+                name.append(i > 0 ? ", " : "").append(arguments[i].getTypeName());
+            }
+            return name.append('>').toString();
+        }
+    }
+
+    private static final class GenericArrayTypeImpl implements GenericArrayType {
+        private final Type componentType;
+
+        private GenericArrayTypeImpl(Type componentType) {
+            this.componentType = componentType;
+        }
+
+        @Override
+        public Type getGenericComponentType() {
+            return componentType;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof GenericArrayType
+                    && componentType.equals(((GenericArrayType) other).getGenericComponentType());
+        }
+
+        @Override
+        public int hashCode() {
+            return componentType.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return componentType.getTypeName() + "[]";
+        }
+    }
+
+    private static final class WildcardTypeImpl implements WildcardType {
+        private final Type[] upperBounds;
+        private final Type[] lowerBounds;
+
+        private WildcardTypeImpl(Type upperBound, Type lowerBound) {
+            this.upperBounds = new Type[]{upperBound};
+            this.lowerBounds = lowerBound != null ? new Type[]{lowerBound} : NO_TYPES;
+        }
+
+        @Override
+        public Type[] getUpperBounds() {
+            return upperBounds.clone();
+        }
+
+        @Override
+        public Type[] getLowerBounds() {
+            return lowerBounds.clone();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof WildcardType)) {
+                return false;
+            }
+            WildcardType that = (WildcardType) other;
+            return Arrays.equals(upperBounds, that.getUpperBounds())
+                    && Arrays.equals(lowerBounds, that.getLowerBounds());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(upperBounds) ^ Arrays.hashCode(lowerBounds);
+        }
+
+        @Override
+        public String toString() {
+            if (lowerBounds.length > 0) {
+                return "? super " + lowerBounds[0].getTypeName();
+            }
+            return upperBounds[0] == Object.class ? "?" : "? extends " + upperBounds[0].getTypeName();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pooled buffers of a body, held until the whole body arrived. Every buffer not taken is released by
+ * {@link #release()}, which runs however the body ends, including on errors and cancellation. A buffer added after
+ * that is released at once.
+ */
+final class PooledBuffers {
+    private List<DataBuffer> buffers = new ArrayList<>();
+    private boolean released;
+
+    synchronized void add(DataBuffer buffer) {
+        if (released) {
+            DataBufferUtils.release(buffer);
+        } else {
+            buffers.add(buffer);
+        }
+    }
+
+    synchronized int size() {
+        int size = 0;
+        for (DataBuffer buffer : buffers) {
+            size += buffer.readableByteCount();
+        }
+        return size;
+    }
+
+    /**
+     * @return the whole body, or {@code null} when it is empty.
+     */
+    synchronized byte[] toByteArray() {
+        int size = size();
+        if (size == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (DataBuffer buffer : buffers) {
+            int length = buffer.readableByteCount();
+            buffer.read(bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Hands the buffers over to the caller, which releases them from now on.
+     */
+    synchronized List<DataBuffer> take() {
+        List<DataBuffer> taken = buffers;
+        buffers = Collections.emptyList();
+        return taken;
+    }
+
+    synchronized void release() {
+        released = true;
+        buffers.forEach(DataBufferUtils::release);
+        buffers = Collections.emptyList();
+    }
+}
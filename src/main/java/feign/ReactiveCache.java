@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Caches the decoded responses of a GET method returning {@code Mono}, keyed by its resolved URL and the given
+ * request headers. {@code Cache-Control: no-store}, {@code no-cache} and {@code max-age} are honored and entries with
+ * an {@code ETag} are revalidated with {@code If-None-Match} once they expire. Concurrent identical calls share a
+ * single request.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface ReactiveCache {
+
+    /**
+     * Time to live of responses without a {@code max-age}.
+     */
+    long ttlMillis() default 60000;
+
+    int maximumSize() default 1000;
+
+    /**
+     * Request headers which are part of the cache key, e.g. {@code Accept} or {@code Authorization}.
+     */
+    String[] keyHeaders() default {};
+}
@@ -15,14 +15,56 @@
  */
 package feign;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.AttributeKey;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.ClientHttpResponseDecorator;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ClientCodecConfigurer;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.client.HttpClientRequest;
+import reactor.ipc.netty.resources.LoopResources;
+import reactor.ipc.netty.resources.PoolResources;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.Collections;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Hanan Aharonof.
@@ -31,11 +73,70 @@ public interface ReactiveClient extends Client {
 
     Mono<ClientResponse> executeReactive(Request request, Request.Options options) throws IOException;
 
-    class Default implements ReactiveClient {
-        private WebClient reactiveClient;
+    /**
+     * Executes the request, writing the given body inserter (when not {@code null}) instead of
+     * {@link Request#body()}.
+     */
+    default Mono<ClientResponse> executeReactive(Request request, Request.Options options,
+                                                 BodyInserter<?, ? super ClientHttpRequest> body) throws IOException {
+        if (body == null) {
+            return executeReactive(request, options);
+        }
+        throw new UnsupportedOperationException(
+                String.format("%s does not support reactive request bodies.", getClass().getSimpleName()));
+    }
+
+    /**
+     * Closing the client disposes the connection pools and event loops it created.
+     */
+    class Default implements ReactiveClient, Closeable {
+        private static final AttributeKey<Long> CREATED_AT = AttributeKey.valueOf("reactiveFeign.createdAt");
+        private static final String ACCEPT_ENCODING = "gzip, deflate";
+        private static final String GZIP = "gzip";
+
+        private final int maxConnections;
+        private final long acquireTimeoutMillis;
+        private final int maxExchanges;
+        private final long maxIdleTimeMillis;
+        private final long maxLifeTimeMillis;
+        private final boolean nativeTransport;
+        private final LoopResources loopResources;
+        private final ReactiveInstrumentation instrumentation;
+        private final ExchangeStrategies exchangeStrategies;
+        private final boolean compression;
+        private final int requestCompressionThreshold;
+
+        private final ConcurrentMap<Integer, Pool> poolsByConnectTimeout = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Long, WebClient> clientsByTimeouts = new ConcurrentHashMap<>();
+        private volatile OptionsClient lastClient;
+        private volatile boolean closed;
 
         public Default() {
-            this.reactiveClient = WebClient.create();
+            this(new Builder());
+        }
+
+        private Default(Builder builder) {
+            this.maxConnections = builder.maxConnections;
+            this.acquireTimeoutMillis = builder.acquireTimeoutMillis;
+            this.maxExchanges = builder.maxConnections > 0 && builder.maxPendingAcquires >= 0
+                    ? builder.maxConnections + builder.maxPendingAcquires
+                    : -1;
+            this.maxIdleTimeMillis = builder.maxIdleTimeMillis;
+            this.maxLifeTimeMillis = builder.maxLifeTimeMillis;
+            this.nativeTransport = builder.nativeTransport;
+            this.loopResources = builder.eventLoopCount > 0
+                    ? LoopResources.create("reactive-feign", builder.eventLoopCount, true)
+                    : null;
+            this.instrumentation = builder.instrumentation;
+            this.exchangeStrategies = builder.codecs != null
+                    ? ExchangeStrategies.builder().codecs(builder.codecs).build()
+                    : ExchangeStrategies.withDefaults();
+            this.compression = builder.compression;
+            this.requestCompressionThreshold = builder.requestCompressionThreshold;
+        }
+
+        public static Builder builder() {
+            return new Builder();
         }
 
         @Override
@@ -43,41 +144,505 @@ public interface ReactiveClient extends Client {
             throw new UnsupportedOperationException();
         }
 
+        @Override
         public Mono<ClientResponse> executeReactive(Request request, Request.Options options) throws IOException {
-            WebClient.RequestHeadersUriSpec<?> spec = createSpec(request);
+            return executeReactive(request, options, null);
+        }
+
+        @Override
+        public Mono<ClientResponse> executeReactive(Request request, Request.Options options,
+                                                    BodyInserter<?, ? super ClientHttpRequest> body) throws IOException {
+            if (closed) {
+                return Mono.error(new IllegalStateException("The client is closed"));
+            }
+            WebClient.RequestBodyUriSpec spec = createSpec(webClient(options), request);
             if (spec == null) {
                 return Mono.error(new UnsupportedOperationException());
             }
             if (!CollectionUtils.isEmpty(request.headers())) {
                 request.headers().forEach((key, value) -> spec.header(key, value.toArray(new String[value.size()])));
             }
+            if (compression) {
+                spec.headers(headers -> {
+                    if (!headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+                        headers.set(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+                    }
+                });
+            }
             if (request.charset() != null) {
                 spec.acceptCharset(request.charset());
             }
             spec.uri(request.url());
-            return spec.exchange();
+            if (body == null && request.body() != null) {
+                body = BodyInserters.fromObject(request.body());
+            }
+            if (body != null) {
+                spec.body(requestCompressionThreshold >= 0 ? compress(body) : body);
+            }
+
+            return spec.exchange()
+                    .onErrorMap(ReadTimeoutException.class,
+                            e -> new SocketTimeoutException(String.format("Read timed out after %sms executing %s %s",
+                                    options.readTimeoutMillis(), request.method(), request.url())));
+        }
+
+        /**
+         * @return the number of requests which currently hold a connection of a fixed pool or wait for one, when
+         * {@link Builder#maxPendingAcquires} bounds them.
+         */
+        public int inFlightRequests() {
+            int inFlight = 0;
+            for (Pool pool : poolsByConnectTimeout.values()) {
+                for (AtomicInteger exchanges : pool.exchangesByAddress.values()) {
+                    inFlight += exchanges.get();
+                }
+            }
+            return inFlight;
+        }
+
+        /**
+         * Disposes the connection pools and the event loops created by this client. Requests made afterwards fail.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            clientsByTimeouts.clear();
+            lastClient = null;
+            poolsByConnectTimeout.values().forEach(pool -> pool.resources.dispose());
+            poolsByConnectTimeout.clear();
+            if (loopResources != null) {
+                loopResources.dispose();
+            }
+        }
+
+        private BodyInserter<?, ClientHttpRequest> compress(BodyInserter<?, ? super ClientHttpRequest> body) {
+            return (request, context) -> body.insert(new CompressingRequest(request, requestCompressionThreshold),
+                    context);
+        }
+
+        private WebClient.RequestBodyUriSpec createSpec(WebClient reactiveClient, Request request) {
+            HttpMethod method = HttpMethod.resolve(request.method().toUpperCase());
+            return method != null ? reactiveClient.method(method) : null;
+        }
+
+        /**
+         * Timeouts can't be changed on a shared connector, so a {@link WebClient} is kept per distinct
+         * connect/read timeout pair. Clients sharing a connect timeout share their connection pool.
+         */
+        private WebClient webClient(Request.Options options) {
+            OptionsClient last = lastClient;
+            if (last != null && last.options == options) {
+                return last.client;
+            }
+
+            final int connectTimeout = options.connectTimeoutMillis();
+            final int readTimeout = options.readTimeoutMillis();
+            final long key = ((long) connectTimeout << 32) | (readTimeout & 0xFFFFFFFFL);
+            WebClient client = clientsByTimeouts.computeIfAbsent(key, k -> createWebClient(connectTimeout, readTimeout));
+            lastClient = new OptionsClient(options, client);
+            return client;
+        }
+
+        private WebClient createWebClient(int connectTimeout, int readTimeout) {
+            final Pool pool = poolsByConnectTimeout.computeIfAbsent(connectTimeout, this::createPool);
+            final ClientHttpConnector connector = new ReactorClientHttpConnector(opts -> {
+                opts.poolResources(pool.resources)
+                        .preferNative(nativeTransport)
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
+                        .afterChannelInit(channel -> initChannel(channel))
+                        .afterNettyContextInit(context -> initContext(context, readTimeout));
+                if (loopResources != null) {
+                    opts.loopResources(loopResources);
+                }
+            });
+            return WebClient.builder()
+                    .clientConnector(limitPendingAcquires(instrument(connector, poolName(connectTimeout)), pool))
+                    .exchangeStrategies(exchangeStrategies)
+                    .build();
         }
 
-        private WebClient.RequestHeadersUriSpec<?> createSpec(Request request) {
-            if (HttpMethod.GET.toString().equalsIgnoreCase(request.method())) {
-                return reactiveClient.get();
+        private ClientHttpConnector instrument(ClientHttpConnector connector, String poolName) {
+            if (instrumentation == ReactiveInstrumentation.NOOP) {
+                return connector;
             }
-            if (HttpMethod.POST.toString().equalsIgnoreCase(request.method())) {
-                return reactiveClient.post();
+            ReactiveInstrumentation.ConnectionRecorder recorder = instrumentation.connectionRecorder(poolName);
+            return recorder == ReactiveInstrumentation.ConnectionRecorder.NOOP
+                    ? connector
+                    : new InstrumentedConnector(connector, recorder);
+        }
+
+        private ClientHttpConnector limitPendingAcquires(ClientHttpConnector connector, Pool pool) {
+            return maxExchanges > 0 ? new PendingAcquireLimitingConnector(connector, pool, maxConnections, maxExchanges) : connector;
+        }
+
+        private static String poolName(int connectTimeout) {
+            return "reactive-feign-" + connectTimeout;
+        }
+
+        private Pool createPool(int connectTimeout) {
+            String name = poolName(connectTimeout);
+            return new Pool(maxConnections > 0
+                    ? PoolResources.fixed(name, maxConnections, acquireTimeoutMillis)
+                    : PoolResources.elastic(name));
+        }
+
+        private void initChannel(Channel channel) {
+            channel.attr(CREATED_AT).set(System.currentTimeMillis());
+            if (maxIdleTimeMillis > 0) {
+                channel.pipeline().addFirst("reactiveFeign.idleState",
+                        new IdleStateHandler(0, 0, maxIdleTimeMillis, TimeUnit.MILLISECONDS));
+                channel.pipeline().addAfter("reactiveFeign.idleState", "reactiveFeign.idleClose",
+                        new IdleConnectionCloser());
             }
-            if (HttpMethod.PUT.toString().equalsIgnoreCase(request.method())) {
-                return reactiveClient.put();
+        }
+
+        private void initContext(NettyContext context, int readTimeout) {
+            // Handlers added through the context are removed once the current exchange terminates.
+            context.addHandlerLast("reactiveFeign.readTimeout",
+                    new ReadTimeoutHandler(readTimeout, TimeUnit.MILLISECONDS));
+            if (compression) {
+                // Inflates the response content as it's received, and drops its Content-Encoding.
+                context.addHandlerLast("reactiveFeign.decompressor", new HttpContentDecompressor());
             }
-            if (HttpMethod.DELETE.toString().equalsIgnoreCase(request.method())) {
-                return reactiveClient.delete();
+
+            if (maxLifeTimeMillis > 0 && context instanceof HttpClientRequest) {
+                Long createdAt = context.channel().attr(CREATED_AT).get();
+                if (createdAt != null && System.currentTimeMillis() - createdAt > maxLifeTimeMillis) {
+                    // Expired connections serve this last exchange and are not returned to the pool.
+                    ((HttpClientRequest) context).keepAlive(false);
+                }
             }
-            if (HttpMethod.PATCH.toString().equalsIgnoreCase(request.method())) {
-                return reactiveClient.patch();
+        }
+
+        /**
+         * A pool keeps its connections per remote address, so the exchanges holding or waiting for them are counted
+         * per remote address as well.
+         */
+        private static final class Pool {
+            private final PoolResources resources;
+            private final ConcurrentMap<String, AtomicInteger> exchangesByAddress = new ConcurrentHashMap<>();
+
+            private Pool(PoolResources resources) {
+                this.resources = resources;
+            }
+
+            private AtomicInteger exchanges(String address) {
+                AtomicInteger exchanges = exchangesByAddress.get(address);
+                return exchanges != null
+                        ? exchanges
+                        : exchangesByAddress.computeIfAbsent(address, key -> new AtomicInteger());
+            }
+        }
+
+        /**
+         * Fails exchanges fast once all connections of the pool to their remote address are taken and
+         * {@code maxPendingAcquires} exchanges already wait for one. An exchange holds its connection until its
+         * response body is consumed or released, or until it fails or is cancelled before the response.
+         */
+        private static final class PendingAcquireLimitingConnector implements ClientHttpConnector {
+            private final ClientHttpConnector delegate;
+            private final Pool pool;
+            private final int maxConnections;
+            private final int maxExchanges;
+
+            private PendingAcquireLimitingConnector(ClientHttpConnector delegate, Pool pool, int maxConnections,
+                                                    int maxExchanges) {
+                this.delegate = delegate;
+                this.pool = pool;
+                this.maxConnections = maxConnections;
+                this.maxExchanges = maxExchanges;
             }
-            if (HttpMethod.OPTIONS.toString().equalsIgnoreCase(request.method())) {
-                return reactiveClient.options();
+
+            @Override
+            public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+                                                    Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+                return Mono.defer(() -> {
+                    final String address = address(uri);
+                    final AtomicInteger exchanges = pool.exchanges(address);
+                    if (exchanges.incrementAndGet() > maxExchanges) {
+                        exchanges.decrementAndGet();
+                        return Mono.error(new FeignException(String.format(
+                                "Pending acquire queue of %s has reached its maximum size of %s",
+                                address, maxExchanges - maxConnections)));
+                    }
+                    final Exchange exchange = new Exchange(exchanges);
+                    return delegate.connect(method, uri, requestCallback)
+                            .map(response -> (ClientHttpResponse) new ReleasingResponse(response, exchange))
+                            .doOnError(e -> exchange.release())
+                            .doOnCancel(exchange::releaseUnlessResponded);
+                });
+            }
+
+            private static String address(URI uri) {
+                int port = uri.getPort() >= 0 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+                return uri.getHost() + ":" + port;
+            }
+        }
+
+        /**
+         * Releases the exchange's count once, whichever of its signals comes first.
+         */
+        private static final class Exchange {
+            private final AtomicInteger exchanges;
+            private final AtomicBoolean released = new AtomicBoolean();
+            private volatile boolean responded;
+
+            private Exchange(AtomicInteger exchanges) {
+                this.exchanges = exchanges;
+            }
+
+            private void releaseUnlessResponded() {
+                // Once the response is out, its body holds the connection.
+                if (!responded) {
+                    release();
+                }
+            }
+
+            private void release() {
+                if (released.compareAndSet(false, true)) {
+                    exchanges.decrementAndGet();
+                }
+            }
+        }
+
+        private static final class ReleasingResponse extends ClientHttpResponseDecorator {
+            private final Exchange exchange;
+
+            private ReleasingResponse(ClientHttpResponse delegate, Exchange exchange) {
+                super(delegate);
+                this.exchange = exchange;
+                exchange.responded = true;
+            }
+
+            @Override
+            public Flux<DataBuffer> getBody() {
+                // Released before the end of the body is passed on, so that readers of the body see it released.
+                return super.getBody().doOnTerminate(exchange::release).doOnCancel(exchange::release);
+            }
+        }
+
+        private static final class OptionsClient {
+            private final Request.Options options;
+            private final WebClient client;
+
+            private OptionsClient(Request.Options options, WebClient client) {
+                this.options = options;
+                this.client = client;
+            }
+        }
+
+        /**
+         * The request callback runs once a connection is ready to write to, so the time until then is the time
+         * spent acquiring a pooled connection or opening a new one.
+         */
+        private static final class InstrumentedConnector implements ClientHttpConnector {
+            private final ClientHttpConnector delegate;
+            private final ReactiveInstrumentation.ConnectionRecorder recorder;
+
+            private InstrumentedConnector(ClientHttpConnector delegate,
+                                          ReactiveInstrumentation.ConnectionRecorder recorder) {
+                this.delegate = delegate;
+                this.recorder = recorder;
+            }
+
+            @Override
+            public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+                                                    Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+                return Mono.defer(() -> {
+                    final long start = System.nanoTime();
+                    return delegate.connect(method, uri, request -> {
+                        recorder.connectionAcquired(System.nanoTime() - start);
+                        return requestCallback.apply(request);
+                    });
+                });
+            }
+        }
+
+        /**
+         * Gzips bodies of at least {@code threshold} bytes. The body is buffered to learn its size, so streamed
+         * bodies, written through {@link #writeAndFlushWith}, are sent as they are.
+         */
+        private static final class CompressingRequest extends ClientHttpRequestDecorator {
+            private final int threshold;
+
+            private CompressingRequest(ClientHttpRequest delegate, int threshold) {
+                super(delegate);
+                this.threshold = threshold;
+            }
+
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                return Mono.using(PooledBuffers::new,
+                        buffers -> Flux.from(body).doOnNext(buffers::add).then(Mono.defer(() -> write(buffers))),
+                        PooledBuffers::release);
+            }
+
+            private Mono<Void> write(PooledBuffers buffers) {
+                int size = buffers.size();
+                if (size == 0 || size < threshold || getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+                    return super.writeWith(Flux.fromIterable(buffers.take()));
+                }
+                DataBuffer compressed;
+                try {
+                    compressed = gzip(buffers.take());
+                } catch (IOException e) {
+                    return Mono.error(e);
+                }
+                getHeaders().set(HttpHeaders.CONTENT_ENCODING, GZIP);
+                getHeaders().setContentLength(compressed.readableByteCount());
+                return super.writeWith(Mono.just(compressed));
+            }
+
+            /**
+             * Releases the given buffers.
+             */
+            private DataBuffer gzip(List<DataBuffer> buffers) throws IOException {
+                DataBuffer compressed = bufferFactory().allocateBuffer();
+                try (OutputStream out = new GZIPOutputStream(compressed.asOutputStream())) {
+                    for (DataBuffer buffer : buffers) {
+                        StreamUtils.copy(buffer.asInputStream(), out);
+                    }
+                } catch (IOException e) {
+                    DataBufferUtils.release(compressed);
+                    throw e;
+                } finally {
+                    buffers.forEach(DataBufferUtils::release);
+                }
+                return compressed;
+            }
+        }
+
+        private static final class IdleConnectionCloser extends ChannelDuplexHandler {
+            @Override
+            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+                if (evt instanceof IdleStateEvent) {
+                    ctx.close();
+                } else {
+                    super.userEventTriggered(ctx, evt);
+                }
+            }
+        }
+
+        public static final class Builder {
+            private int maxConnections = -1;
+            private long acquireTimeoutMillis = 45000;
+            private int maxPendingAcquires = -1;
+            private long maxIdleTimeMillis = -1;
+            private long maxLifeTimeMillis = -1;
+            private int eventLoopCount = -1;
+            private boolean nativeTransport = true;
+            private ReactiveInstrumentation instrumentation = ReactiveInstrumentation.NOOP;
+            private Consumer<ClientCodecConfigurer> codecs;
+            private boolean compression;
+            private int requestCompressionThreshold = -1;
+
+            Builder() {
+            }
+
+            /**
+             * Uses a fixed pool of at most {@code maxConnections} connections per remote address.
+             * A non-positive value (the default) selects an elastic, unbounded pool.
+             * <p>
+             * Connections speak HTTP/1.1 and carry one exchange at a time, as the reactor-netty client has no
+             * HTTP/2 support. To keep the connections per server down, e.g. with many Ribbon servers, use a small
+             * fixed pool and bound the requests waiting for its connections with {@link #maxPendingAcquires}. Both
+             * limits apply to each server on its own, so a slow server doesn't take connections from the others.
+             */
+            public Builder maxConnections(int maxConnections) {
+                this.maxConnections = maxConnections;
+                return this;
+            }
+
+            /**
+             * How long a request may wait for a connection of a fixed pool, defaults to 45 seconds.
+             */
+            public Builder acquireTimeoutMillis(long acquireTimeoutMillis) {
+                this.acquireTimeoutMillis = acquireTimeoutMillis;
+                return this;
+            }
+
+            /**
+             * With a fixed pool, fails requests to a remote address fast once all of its {@code maxConnections}
+             * connections are taken and {@code maxPendingAcquires} requests already wait for one. A request holds its
+             * connection until its response body is consumed or released. Negative (the default) means unbounded.
+             */
+            public Builder maxPendingAcquires(int maxPendingAcquires) {
+                this.maxPendingAcquires = maxPendingAcquires;
+                return this;
+            }
+
+            /**
+             * Closes connections without any traffic for the given time. This applies to in-flight exchanges
+             * as well, so it should be longer than the read timeout.
+             */
+            public Builder maxIdleTimeMillis(long maxIdleTimeMillis) {
+                this.maxIdleTimeMillis = maxIdleTimeMillis;
+                return this;
+            }
+
+            /**
+             * Connections older than the given time are closed after their current exchange.
+             */
+            public Builder maxLifeTimeMillis(long maxLifeTimeMillis) {
+                this.maxLifeTimeMillis = maxLifeTimeMillis;
+                return this;
+            }
+
+            /**
+             * Uses dedicated event loops instead of the shared reactor-netty ones.
+             */
+            public Builder eventLoopCount(int eventLoopCount) {
+                this.eventLoopCount = eventLoopCount;
+                return this;
+            }
+
+            /**
+             * Prefers the native (epoll) transport when available, enabled by default.
+             */
+            public Builder nativeTransport(boolean nativeTransport) {
+                this.nativeTransport = nativeTransport;
+                return this;
+            }
+
+            /**
+             * Records the connection acquire time of every pool, see {@link ReactiveInstrumentation}.
+             */
+            public Builder instrumentation(ReactiveInstrumentation instrumentation) {
+                this.instrumentation = Util.checkNotNull(instrumentation, "instrumentation");
+                return this;
+            }
+
+            /**
+             * Configures the readers and writers of request and response bodies, on top of the defaults of
+             * {@link WebClient}. They are chosen by the {@code Content-Type} of the body, so a method picks a format
+             * through its {@code Accept} and {@code Content-Type} headers, see {@link ReactiveCodecs}.
+             */
+            public Builder codecs(Consumer<ClientCodecConfigurer> codecs) {
+                this.codecs = codecs;
+                return this;
+            }
+
+            /**
+             * Asks for gzip or deflate responses, unless a request sets its own {@code Accept-Encoding}, and inflates
+             * them as they are received. Disabled by default.
+             */
+            public Builder compression(boolean compression) {
+                this.compression = compression;
+                return this;
+            }
+
+            /**
+             * Gzips request bodies of at least the given size, in bytes. Those bodies are buffered in full before
+             * being sent. Negative (the default) disables request compression.
+             */
+            public Builder requestCompressionThreshold(int requestCompressionThreshold) {
+                this.requestCompressionThreshold = requestCompressionThreshold;
+                return this;
+            }
+
+            public Default build() {
+                return new Default(this);
             }
-            return null;
         }
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.codec.ClientCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+
+import java.util.function.Consumer;
+
+import static feign.Util.checkNotNull;
+
+/**
+ * Codec configurations for {@link ReactiveClient.Default.Builder#codecs}.
+ * <p>
+ * Binary formats need their Jackson data format module on the classpath, e.g. {@code jackson-dataformat-smile}.
+ * A method uses them by declaring their media type, e.g.
+ * {@code @Headers({"Accept: application/x-jackson-smile", "Content-Type: application/x-jackson-smile"})}, while the
+ * other methods keep using JSON.
+ */
+public final class ReactiveCodecs {
+
+    private ReactiveCodecs() {
+    }
+
+    /**
+     * Reads and writes {@code application/x-jackson-smile}, the binary form of JSON.
+     */
+    public static Consumer<ClientCodecConfigurer> smile() {
+        return smile(new ObjectMapper(new SmileFactory()).findAndRegisterModules());
+    }
+
+    /**
+     * @param mapper an {@link ObjectMapper} created with a {@link SmileFactory}
+     */
+    public static Consumer<ClientCodecConfigurer> smile(ObjectMapper mapper) {
+        checkNotNull(mapper, "mapper");
+        return configurer -> {
+            configurer.customCodecs().decoder(new Jackson2SmileDecoder(mapper));
+            configurer.customCodecs().encoder(new Jackson2SmileEncoder(mapper));
+        };
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import feign.codec.EncodeException;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.lang.reflect.Type;
+
+/**
+ * Reactive counterpart of {@link feign.codec.Encoder}. Instead of encoding the {@code @Body} argument into a
+ * {@code byte[]}, it returns a {@link BodyInserter} which lets the {@code HttpMessageWriter}s of the underlying
+ * {@code WebClient} write the argument straight into the request's data buffers.
+ */
+public interface ReactiveEncoder {
+
+    BodyInserter<?, ? super ClientHttpRequest> encode(Object body, Type bodyType) throws EncodeException;
+
+    /**
+     * Streams {@link Publisher} arguments element by element and writes any other argument as a single value.
+     */
+    class Default implements ReactiveEncoder {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public BodyInserter<?, ? super ClientHttpRequest> encode(Object body, Type bodyType) {
+            if (body instanceof Publisher) {
+                ResolvableType elementType = ResolvableType.forType(bodyType).as(Publisher.class).getGeneric(0);
+                Type element = elementType.resolve() != null ? elementType.getType() : Object.class;
+                return BodyInserters.fromPublisher((Publisher<Object>) body, ParameterizedTypeReference.forType(element));
+            }
+            return BodyInserters.fromObject(body);
+        }
+    }
+}
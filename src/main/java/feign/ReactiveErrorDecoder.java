@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Maps error responses, 4xx and 5xx statuses, to the exceptions their calls fail with. The body of the response is
+ * read up to a limit and always released, so the connection goes back to the pool.
+ */
+public interface ReactiveErrorDecoder {
+
+    /**
+     * @param methodKey the config key of the called method, see {@link Feign#configKey}
+     * @param body      the start of the response body, up to the limit configured in {@link ReactiveFeign.Builder}
+     * @return the exception the call fails with
+     */
+    Exception decode(String methodKey, HttpStatus status, HttpHeaders headers, byte[] body);
+
+    /**
+     * Fails with {@link HttpClientErrorException} or {@link HttpServerErrorException}, holding the headers and body.
+     */
+    class Default implements ReactiveErrorDecoder {
+
+        @Override
+        public Exception decode(String methodKey, HttpStatus status, HttpHeaders headers, byte[] body) {
+            MediaType contentType = headers.getContentType();
+            Charset charset = contentType != null && contentType.getCharset() != null
+                    ? contentType.getCharset()
+                    : StandardCharsets.ISO_8859_1;
+            if (status.is4xxClientError()) {
+                return new HttpClientErrorException(status, status.getReasonPhrase(), headers, body, charset);
+            }
+            return new HttpServerErrorException(status, status.getReasonPhrase(), headers, body, charset);
+        }
+    }
+}
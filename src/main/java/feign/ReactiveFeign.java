@@ -16,16 +16,18 @@
 package feign;
 
 import feign.codec.Encoder;
-import sun.reflect.generics.reflectiveObjects.ParameterizedTypeImpl;
+import org.springframework.http.codec.ClientCodecConfigurer;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.*;
+import java.util.function.Consumer;
 
+import static feign.Util.checkArgument;
 import static feign.Util.checkNotNull;
 import static feign.Util.isDefault;
-import static feign.Utils.getReactiveParameterizedType;
 
 /**
  * Modified copy (01/01/2018) of {@link Feign}.
@@ -46,9 +48,22 @@ public class ReactiveFeign extends Feign {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <T> T newInstance(Target<T> target) {
-        final Map<String, InvocationHandlerFactory.MethodHandler> nameToHandler = targetToHandlersByName.apply(target);
+        return newInstance(target, null);
+    }
+
+    /**
+     * @param fallback called instead of the target while the circuit breaker of a method is open, may be
+     *                 {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T newInstance(Target<T> target, T fallback) {
+        final Map<String, InvocationHandlerFactory.MethodHandler> nameToHandler =
+                targetToHandlersByName.apply(target, fallback);
+        final T generated = GeneratedImplementations.newInstance(target, nameToHandler);
+        if (generated != null) {
+            return generated;
+        }
         final Map<Method, InvocationHandlerFactory.MethodHandler> methodToHandler = new LinkedHashMap<>();
         final List<DefaultMethodHandler> defaultMethodHandlers = new LinkedList<>();
 
@@ -80,16 +95,59 @@ public class ReactiveFeign extends Feign {
         private final List<RequestInterceptor> requestInterceptors = new ArrayList<>();
         private Logger.Level logLevel = Logger.Level.NONE;
         private Contract contract = new Contract.Default();
-        private ReactiveClient reactiveClient = new ReactiveClient.Default();
+        private ReactiveClient reactiveClient;
+        private Consumer<ClientCodecConfigurer> codecs;
+        private boolean compression;
+        private int requestCompressionThreshold = -1;
+        private ReactiveEncoder reactiveEncoder = new ReactiveEncoder.Default();
         private Logger logger = new Logger.NoOpLogger();
         private Request.Options options = new Request.Options();
         private InvocationHandlerFactory invocationHandlerFactory = new InvocationHandlerFactory.Default();
+        private ReactiveRetryPolicy retryPolicy;
+        private RetryBudget retryBudget = RetryBudget.create();
+        private ReactiveInstrumentation instrumentation = ReactiveInstrumentation.NOOP;
+        private boolean singleFlight;
+        private CircuitBreakerPolicy circuitBreakerPolicy;
+        private ReactiveErrorDecoder errorDecoder = new ReactiveErrorDecoder.Default();
+        private int maxErrorBodySize = DecodingPlan.DEFAULT_MAX_ERROR_BODY_SIZE;
 
         public Builder reactiveClient(final ReactiveClient reactiveClient) {
             this.reactiveClient = reactiveClient;
             return this;
         }
 
+        /**
+         * Configures the codecs of the default {@link ReactiveClient}, see {@link ReactiveClient.Default.Builder#codecs}.
+         * A client given through {@link #reactiveClient} is configured on its own.
+         */
+        public Builder codecs(final Consumer<ClientCodecConfigurer> codecs) {
+            this.codecs = codecs;
+            return this;
+        }
+
+        /**
+         * Configures response compression of the default {@link ReactiveClient}, see
+         * {@link ReactiveClient.Default.Builder#compression}.
+         */
+        public Builder compression(final boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * Configures request compression of the default {@link ReactiveClient}, see
+         * {@link ReactiveClient.Default.Builder#requestCompressionThreshold}.
+         */
+        public Builder requestCompressionThreshold(final int requestCompressionThreshold) {
+            this.requestCompressionThreshold = requestCompressionThreshold;
+            return this;
+        }
+
+        public Builder reactiveEncoder(final ReactiveEncoder reactiveEncoder) {
+            this.reactiveEncoder = reactiveEncoder;
+            return this;
+        }
+
         @Override
         public Builder client(final Client client) {
             throw new UnsupportedOperationException();
@@ -117,6 +175,69 @@ public class ReactiveFeign extends Feign {
             throw new UnsupportedOperationException();
         }
 
+        /**
+         * Retries failed requests of all methods, unless overridden by {@link ReactiveRetry}.
+         * No retries are made by default.
+         */
+        public Builder retryPolicy(final ReactiveRetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Limits the retries of all the methods of the client, defaults to {@link RetryBudget#create()}.
+         */
+        public Builder retryBudget(final RetryBudget retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * Maps error responses to the exceptions their calls fail with, see {@link ReactiveErrorDecoder}.
+         */
+        public Builder reactiveErrorDecoder(final ReactiveErrorDecoder errorDecoder) {
+            this.errorDecoder = errorDecoder;
+            return this;
+        }
+
+        /**
+         * The most bytes of an error response body handed to the {@link ReactiveErrorDecoder}, 8192 by default.
+         * The rest of the body is read and discarded.
+         */
+        public Builder maxErrorBodySize(final int maxErrorBodySize) {
+            checkArgument(maxErrorBodySize >= 0, "maxErrorBodySize must not be negative but was %s",
+                    maxErrorBodySize);
+            this.maxErrorBodySize = maxErrorBodySize;
+            return this;
+        }
+
+        /**
+         * Guards every method of every target with a circuit breaker of its own. Disabled by default.
+         */
+        public Builder circuitBreaker(final CircuitBreakerPolicy circuitBreakerPolicy) {
+            this.circuitBreakerPolicy = circuitBreakerPolicy;
+            return this;
+        }
+
+        /**
+         * Lets concurrent identical GET calls of methods returning {@code Mono} share a single request. Calls are
+         * identical when their requests, after the request interceptors ran, have the same URL and headers. Methods
+         * with a {@code @Body} argument, which is only encoded once the request is sent, and streamed bodies of
+         * pooled buffers are never shared. Disabled by default.
+         */
+        public Builder singleFlight(final boolean singleFlight) {
+            this.singleFlight = singleFlight;
+            return this;
+        }
+
+        /**
+         * Records latencies, statuses and errors of every method, see {@link ReactiveInstrumentation}.
+         */
+        public Builder instrumentation(final ReactiveInstrumentation instrumentation) {
+            this.instrumentation = instrumentation;
+            return this;
+        }
+
         @Override
         public Builder logger(final Logger logger) {
             this.logger = logger;
@@ -156,14 +277,42 @@ public class ReactiveFeign extends Feign {
             return build().newInstance(target);
         }
 
+        /**
+         * Calls the fallback while the circuit breaker of a method is open, see {@link #circuitBreaker}.
+         */
+        public <T> T target(final Class<T> apiType, final String url, final T fallback) {
+            return target(new Target.HardCodedTarget<>(apiType, url), fallback);
+        }
+
+        public <T> T target(final Target<T> target, final T fallback) {
+            checkNotNull(fallback, "fallback");
+            return build().newInstance(target, fallback);
+        }
+
         @Override
         public ReactiveFeign build() {
-            checkNotNull(this.reactiveClient, "Reactor client wasn't provided in Reactive-Feign builder");
-            final ReactiveMethodHandler.Factory reactiveMethodHandlerFactory =
-                    new ReactiveMethodHandler.Factory(reactiveClient, requestInterceptors, logger, logLevel);
+            if (reactiveClient != null && (codecs != null || compression || requestCompressionThreshold >= 0)) {
+                throw new IllegalStateException("Codecs and compression can't be applied to a given reactive client, "
+                        + "configure them on the client instead");
+            }
+            final ReactiveClient reactiveClient = this.reactiveClient != null
+                    ? this.reactiveClient
+                    : ReactiveClient.Default.builder()
+                    .codecs(codecs)
+                    .compression(compression)
+                    .requestCompressionThreshold(requestCompressionThreshold)
+                    .build();
+            checkNotNull(this.reactiveEncoder, "Reactive encoder wasn't provided in Reactive-Feign builder");
+            final ReactiveMethodHandler.Factory reactiveMethodHandlerFactory = new ReactiveMethodHandler.Factory(
+                    reactiveClient, requestInterceptors, logger, logLevel, reactiveEncoder,
+                    checkNotNull(retryBudget, "Retry budget wasn't provided in Reactive-Feign builder"),
+                    checkNotNull(instrumentation, "Instrumentation wasn't provided in Reactive-Feign builder"));
 
             final ParseHandlersByName handlersByName =
-                    new ParseHandlersByName(contract, options, reactiveMethodHandlerFactory);
+                    new ParseHandlersByName(contract, options, retryPolicy, singleFlight,
+                            circuitBreakerPolicy,
+                            checkNotNull(errorDecoder, "Error decoder wasn't provided in Reactive-Feign builder"),
+                            maxErrorBodySize, reactiveMethodHandlerFactory);
 
             return new ReactiveFeign(handlersByName, invocationHandlerFactory);
         }
@@ -172,23 +321,46 @@ public class ReactiveFeign extends Feign {
     private static final class ParseHandlersByName {
         private final Contract contract;
         private final Request.Options options;
+        private final ReactiveRetryPolicy retryPolicy;
+        private final boolean singleFlight;
+        private final CircuitBreakerPolicy circuitBreakerPolicy;
+        private final ReactiveErrorDecoder errorDecoder;
+        private final int maxErrorBodySize;
         private final ReactiveMethodHandler.Factory reactiveFactory;
         private final Encoder encoder;
 
         ParseHandlersByName(
                 final Contract contract,
                 final Request.Options options,
+                final ReactiveRetryPolicy retryPolicy,
+                final boolean singleFlight,
+                final CircuitBreakerPolicy circuitBreakerPolicy,
+                final ReactiveErrorDecoder errorDecoder,
+                final int maxErrorBodySize,
                 final ReactiveMethodHandler.Factory reactiveFactory) {
 
             this.contract = contract;
             this.options = options;
+            this.retryPolicy = retryPolicy;
+            this.singleFlight = singleFlight;
+            this.circuitBreakerPolicy = circuitBreakerPolicy;
+            this.errorDecoder = errorDecoder;
+            this.maxErrorBodySize = maxErrorBodySize;
             this.reactiveFactory = reactiveFactory;
             this.encoder = new Encoder.Default();
         }
 
-        Map<String, InvocationHandlerFactory.MethodHandler> apply(final Target key) {
-            final List<MethodMetadata> metadata = contract
-                    .parseAndValidatateMetadata(key.type());
+        Map<String, InvocationHandlerFactory.MethodHandler> apply(final Target key, final Object fallback) {
+            if (fallback != null && !key.type().isInstance(fallback)) {
+                throw new IllegalArgumentException(String.format(
+                        "Fallback %s must implement %s", fallback.getClass().getName(), key.type().getName()));
+            }
+            final List<MethodMetadata> metadata = GeneratedImplementations.metadata(contract, key.type());
+
+            final Map<String, Method> methods = new HashMap<>();
+            for (final Method method : key.type().getMethods()) {
+                methods.put(Feign.configKey(key.type(), method), method);
+            }
 
             final Map<String, InvocationHandlerFactory.MethodHandler> result = new LinkedHashMap<>();
 
@@ -197,28 +369,88 @@ public class ReactiveFeign extends Feign {
 
                 if (!md.formParams().isEmpty() && md.template().bodyTemplate() == null) {
                     buildTemplate = new BuildTemplateByResolvingArgs.BuildFormEncodedTemplateFromArgs(md, encoder);
-                } else if (md.bodyIndex() != null) {
-                    buildTemplate = new BuildTemplateByResolvingArgs.BuildEncodedTemplateFromArgs(md, encoder);
                 } else {
+                    // @Body arguments are not encoded into the template, ReactiveMethodHandler
+                    // hands them to the ReactiveEncoder once the request is about to be sent.
                     buildTemplate = new BuildTemplateByResolvingArgs(md);
                 }
 
-                result.put(md.configKey(), getMethodHandler(key, buildTemplate, md));
+                result.put(md.configKey(),
+                        getMethodHandler(key, buildTemplate, md, methods.get(md.configKey()), fallback));
+            }
+
+            for (final MethodMetadata md : metadata) {
+                final Method method = methods.get(md.configKey());
+                final Batch batch = method != null ? method.getAnnotation(Batch.class) : null;
+                if (batch != null) {
+                    result.put(md.configKey(), batchingHandler(key, method, batch, metadata, result));
+                }
             }
 
             return result;
         }
 
+        private InvocationHandlerFactory.MethodHandler batchingHandler(
+                final Target<?> key,
+                final Method method,
+                final Batch batch,
+                final List<MethodMetadata> metadata,
+                final Map<String, InvocationHandlerFactory.MethodHandler> handlers) {
+
+            Method bulkMethod = null;
+            for (final Method candidate : key.type().getMethods()) {
+                if (candidate.getName().equals(batch.method()) && candidate.getParameterCount() == 1) {
+                    bulkMethod = candidate;
+                }
+            }
+            final String bulkConfigKey = bulkMethod != null ? Feign.configKey(key.type(), bulkMethod) : null;
+            for (final MethodMetadata md : metadata) {
+                if (md.configKey().equals(bulkConfigKey)) {
+                    return BatchingMethodHandler.create(method, batch,
+                            handlers.get(Feign.configKey(key.type(), method)),
+                            bulkMethod, handlers.get(bulkConfigKey), DecodingPlan.of(md));
+                }
+            }
+            throw new FeignException(String.format(
+                    "Bulk method %s of %s wasn't found.", batch.method(), method.getName()));
+        }
+
         private InvocationHandlerFactory.MethodHandler getMethodHandler(final Target key,
                                                                         final BuildTemplateByResolvingArgs buildTemplate,
-                                                                        final MethodMetadata metadata) {
+                                                                        final MethodMetadata metadata,
+                                                                        final Method method,
+                                                                        final Object fallback) {
+
+            final DecodingPlan decodingPlan = DecodingPlan.of(metadata, errorDecoder, maxErrorBodySize);
+            final ReactiveCache cache = method != null ? method.getAnnotation(ReactiveCache.class) : null;
+            return reactiveFactory.create(key, metadata, buildTemplate, options, decodingPlan,
+                    retryPolicy(method), cache != null ? ResponseCache.from(cache, metadata, decodingPlan) : null,
+                    singleFlight(metadata, decodingPlan),
+                    circuitBreakerPolicy != null ? new CircuitBreaker(metadata.configKey(), circuitBreakerPolicy) : null,
+                    fallback != null && method != null ? fallbackHandler(method, fallback) : null);
+        }
 
-            ParameterizedTypeImpl returnType = getReactiveParameterizedType(metadata.returnType());
-            if (returnType == null) {
-                throw new FeignException("Reactive-Feign supports only the Reactor type Mono.");
-            }
+        private InvocationHandlerFactory.MethodHandler fallbackHandler(final Method method, final Object fallback) {
+            return args -> {
+                try {
+                    return method.invoke(fallback, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+        }
+
+        private SingleFlight<RequestKey, Object> singleFlight(final MethodMetadata metadata,
+                                                              final DecodingPlan decodingPlan) {
+            return singleFlight && "GET".equals(metadata.template().method()) && metadata.bodyIndex() == null
+                    && Utils.isMono(decodingPlan.publisherType()) && !decodingPlan.isStreaming()
+                    ? new SingleFlight<>()
+                    : null;
+        }
 
-            return reactiveFactory.create(key, metadata, buildTemplate, options);
+        private ReactiveRetryPolicy retryPolicy(final Method method) {
+            final ReactiveRetry retry = method != null ? method.getAnnotation(ReactiveRetry.class) : null;
+            return retry != null ? ReactiveRetryPolicy.from(retry) : retryPolicy;
         }
     }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+/**
+ * Generates an implementation of the annotated interface at compile time, which {@link ReactiveFeign} uses instead
+ * of a {@link java.lang.reflect.Proxy}. Every method of the implementation calls its method handler directly.
+ * <p>
+ * The implementation of {@code com.example.Outer.Api} is {@code com.example.Outer_Api_ReactiveFeign}, generated by
+ * {@code feign.processor.ReactiveFeignProcessor} when this library is on the annotation processor path. Methods not
+ * returning {@code Mono} or {@code Flux} fail the compilation.
+ * <p>
+ * The annotations of the interface are parsed at compile time as well, into
+ * {@code com.example.Outer_Api_ReactiveFeignContract}, which stands for {@link Contract.Default} when building the
+ * client. Violations of the contract fail the compilation. Interfaces whose types can't be built in source, e.g.
+ * methods with type variables, are parsed at runtime.
+ */
+@Retention(CLASS)
+@Target(TYPE)
+public @interface ReactiveFeignClient {
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+/**
+ * Instrumentation SPI of reactive Feign clients. Recorders are resolved once, when a method handler, a connection
+ * pool or a load balancer client is created, so implementations can pre-register their meters and keep the recording
+ * methods, which are called on every request, free of allocations and lookups.
+ */
+public interface ReactiveInstrumentation {
+
+    ReactiveInstrumentation NOOP = new ReactiveInstrumentation() {
+    };
+
+    /**
+     * @param clientName the name of the {@link Target}.
+     * @param configKey  the {@link MethodMetadata#configKey()} of the method.
+     */
+    default MethodRecorder methodRecorder(String clientName, String configKey) {
+        return MethodRecorder.NOOP;
+    }
+
+    /**
+     * @param poolName the name of a connection pool of {@link ReactiveClient.Default}.
+     */
+    default ConnectionRecorder connectionRecorder(String poolName) {
+        return ConnectionRecorder.NOOP;
+    }
+
+    /**
+     * @param clientName the name of a Ribbon load balancer client.
+     */
+    default LoadBalancerRecorder loadBalancerRecorder(String clientName) {
+        return LoadBalancerRecorder.NOOP;
+    }
+
+    /**
+     * @param key the client name or server whose concurrency is limited by a {@link ConcurrencyLimitingClient}.
+     */
+    default LimiterRecorder limiterRecorder(String key) {
+        return LimiterRecorder.NOOP;
+    }
+
+    interface MethodRecorder {
+        MethodRecorder NOOP = new MethodRecorder() {
+        };
+
+        /**
+         * A call was subscribed to, it's in flight until {@link #requestEnded} or {@link #requestCancelled}.
+         */
+        default void requestStarted() {
+        }
+
+        /**
+         * @param status       the status of the last response, or 0 when no response was received.
+         * @param latencyNanos the time from subscription until the body was decoded or the call failed.
+         * @param error        the failure of the call, {@code null} on success.
+         */
+        default void requestEnded(int status, long latencyNanos, Throwable error) {
+        }
+
+        /**
+         * A call was answered without sending a request of its own, by the response cache or by joining an identical
+         * call in flight.
+         */
+        default void requestCached(long latencyNanos) {
+            requestEnded(0, latencyNanos, null);
+        }
+
+        default void requestCancelled(long latencyNanos) {
+        }
+
+        /**
+         * Time spent building the request and encoding its body argument.
+         */
+        default void requestEncoded(long durationNanos) {
+        }
+
+        /**
+         * Time from the response headers until the body was decoded.
+         */
+        default void responseDecoded(long durationNanos) {
+        }
+    }
+
+    interface ConnectionRecorder {
+        ConnectionRecorder NOOP = new ConnectionRecorder() {
+        };
+
+        /**
+         * Time from the request subscription until a pooled or new connection was ready to write the request.
+         */
+        default void connectionAcquired(long durationNanos) {
+        }
+    }
+
+    interface LoadBalancerRecorder {
+        LoadBalancerRecorder NOOP = new LoadBalancerRecorder() {
+        };
+
+        /**
+         * @param serverId the {@code com.netflix.loadbalancer.Server#getId()} of the server a request is sent to.
+         */
+        default void serverChosen(String serverId) {
+        }
+    }
+
+    interface LimiterRecorder {
+        LimiterRecorder NOOP = new LimiterRecorder() {
+        };
+
+        default void limitChanged(int limit) {
+        }
+
+        default void requestRejected() {
+        }
+    }
+}
@@ -16,6 +16,8 @@
 package feign;
 
 import feign.InvocationHandlerFactory.MethodHandler;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.lang.reflect.InvocationHandler;
@@ -24,6 +26,7 @@ import java.lang.reflect.Proxy;
 import java.util.Map;
 
 import static feign.Util.checkNotNull;
+import static feign.Utils.isFlux;
 import static feign.Utils.isMono;
 
 /**
@@ -55,21 +58,21 @@ final class ReactiveInvocationHandler implements InvocationHandler {
             case "toString":
                 return toString();
             default:
-                if (isMono(method.getReturnType())) {
+                if (isMono(method.getReturnType()) || isFlux(method.getReturnType())) {
                     return invokeReactiveRequestMethod(method, args);
                 }
 
                 throw new FeignException(String.format(
-                        "Method %s of class %s must return Reactor type Mono.",
+                        "Method %s of class %s must return Reactor type Mono or Flux.",
                         method.getName(), method.getDeclaringClass().getSimpleName()));
         }
     }
 
-    private Mono invokeReactiveRequestMethod(final Method method, final Object[] args) {
+    private Publisher invokeReactiveRequestMethod(final Method method, final Object[] args) {
         try {
-            return (Mono) dispatch.get(method).invoke(args);
+            return (Publisher) dispatch.get(method).invoke(args);
         } catch (Throwable throwable) {
-            return Mono.error(throwable);
+            return isFlux(method.getReturnType()) ? Flux.error(throwable) : Mono.error(throwable);
         }
     }
 
@@ -16,17 +16,23 @@
 package feign;
 
 import feign.InvocationHandlerFactory.MethodHandler;
+import feign.ReactiveInstrumentation.MethodRecorder;
 import feign.Request.Options;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
+import feign.codec.EncodeException;
+import org.reactivestreams.Publisher;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import sun.reflect.generics.reflectiveObjects.ParameterizedTypeImpl;
+import reactor.core.publisher.SignalType;
 
+import java.io.IOException;
 import java.util.List;
 
+import static feign.Util.checkArgument;
 import static feign.Util.checkNotNull;
-import static feign.Utils.getReactiveParameterizedType;
+import static feign.Utils.isFlux;
 
 /**
  * Modified copy (01/01/2018) of {@link SynchronousMethodHandler}.
@@ -41,11 +47,25 @@ final class ReactiveMethodHandler implements MethodHandler {
     private final Logger.Level logLevel;
     private final RequestTemplate.Factory buildTemplateFromArgs;
     private final Options options;
+    private final ReactiveEncoder encoder;
+    private final DecodingPlan decodingPlan;
+    private final ReactiveRetryPolicy retryPolicy;
+    private final RetryBudget retryBudget;
+    private final MethodRecorder recorder;
+    private final ResponseCache responseCache;
+    private final SingleFlight<RequestKey, Object> singleFlight;
+    private final CircuitBreaker circuitBreaker;
+    private final MethodHandler fallback;
 
     private ReactiveMethodHandler(Target<?> target, ReactiveClient client,
                                   List<RequestInterceptor> requestInterceptors, Logger logger,
                                   Logger.Level logLevel, MethodMetadata metadata,
-                                  RequestTemplate.Factory buildTemplateFromArgs, Options options) {
+                                  RequestTemplate.Factory buildTemplateFromArgs, Options options,
+                                  ReactiveEncoder encoder, DecodingPlan decodingPlan,
+                                  ReactiveRetryPolicy retryPolicy, RetryBudget retryBudget,
+                                  MethodRecorder recorder, ResponseCache responseCache,
+                                  SingleFlight<RequestKey, Object> singleFlight,
+                                  CircuitBreaker circuitBreaker, MethodHandler fallback) {
 
         this.target = checkNotNull(target, "target");
         this.client = checkNotNull(client, "client for %s", target);
@@ -56,43 +76,186 @@ final class ReactiveMethodHandler implements MethodHandler {
         this.metadata = checkNotNull(metadata, "metadata for %s", target);
         this.buildTemplateFromArgs = checkNotNull(buildTemplateFromArgs, "metadata for %s", target);
         this.options = checkNotNull(options, "options for %s", target);
+        this.encoder = checkNotNull(encoder, "encoder for %s", target);
+        this.decodingPlan = checkNotNull(decodingPlan, "decodingPlan for %s", target);
+        this.retryPolicy = retryPolicy != null && retryPolicy.maxAttempts() > 1 ? retryPolicy : null;
+        this.retryBudget = checkNotNull(retryBudget, "retryBudget for %s", target);
+        this.recorder = recorder;
+        this.responseCache = responseCache;
+        this.singleFlight = singleFlight;
+        this.circuitBreaker = circuitBreaker;
+        this.fallback = fallback;
     }
 
     @Override
     public Object invoke(Object[] argv) throws Throwable {
+        final long start = recorder != null ? System.nanoTime() : 0;
         RequestTemplate template = buildTemplateFromArgs.create(argv);
-        return reactiveExecuteAndDecode(template);
+        Publisher<?> result = reactiveExecuteAndDecode(template, encodeBody(argv), start);
+        return fallback != null ? withFallback(result, argv) : result;
     }
 
-    private Mono<?> reactiveExecuteAndDecode(RequestTemplate template) throws Throwable {
-        ParameterizedTypeImpl returnType = getReactiveParameterizedType(metadata.returnType());
-        if (returnType == null) {
-            throw new FeignException("Reactive-Feign only supports Reactor type Mono.");
+    /**
+     * Calls the fallback when the circuit breaker rejects the call.
+     */
+    @SuppressWarnings("unchecked")
+    private Publisher<?> withFallback(Publisher<?> result, Object[] argv) {
+        if (result instanceof Flux) {
+            return ((Flux<Object>) result).onErrorResume(CircuitBreakerOpenException.class,
+                    e -> (Publisher<Object>) invokeFallback(argv));
         }
+        return ((Mono<Object>) result).onErrorResume(CircuitBreakerOpenException.class,
+                e -> (Mono<Object>) invokeFallback(argv));
+    }
+
+    private Publisher<?> invokeFallback(Object[] argv) {
+        try {
+            return (Publisher<?>) fallback.invoke(argv);
+        } catch (Throwable e) {
+            return isFlux(decodingPlan.publisherType()) ? Flux.error(e) : Mono.error(e);
+        }
+    }
 
+    private BodyInserter<?, ? super ClientHttpRequest> encodeBody(Object[] argv) {
+        if (metadata.bodyIndex() == null) {
+            return null;
+        }
+
+        Object body = argv[metadata.bodyIndex()];
+        checkArgument(body != null, "Body parameter %s was null", metadata.bodyIndex());
+        try {
+            return encoder.encode(body, metadata.bodyType());
+        } catch (EncodeException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new EncodeException(e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Publisher<?> reactiveExecuteAndDecode(RequestTemplate template,
+                                                  BodyInserter<?, ? super ClientHttpRequest> body,
+                                                  long start) throws Throwable {
         final Request request = targetRequest(template);
         if (logLevel != Logger.Level.NONE) {
             logger.logRequest(metadata.configKey(), logLevel, request);
         }
 
-        return client
-                .executeReactive(request, this.options)
-                .flatMap(r -> {
-                    if (r.statusCode().is4xxClientError()) {
-                        return Mono.error(new HttpClientErrorException(r.statusCode()));
-                    }
-                    if (r.statusCode().is5xxServerError()) {
-                        return Mono.error(new HttpServerErrorException(r.statusCode()));
-                    }
-                    return r.bodyToMono(ParameterizedTypeReference.forType(returnType.getActualTypeArguments()[0]));
-                });
+        if (recorder == null) {
+            return executeAndDecode(request, body, null);
+        }
+        recorder.requestEncoded(System.nanoTime() - start);
+        // Each subscription is measured on its own.
+        return isFlux(decodingPlan.publisherType())
+                ? Flux.defer(() -> (Publisher<Object>) executeAndDecode(request, body, new InstrumentedCall(recorder)))
+                : Mono.defer(() -> (Mono<?>) executeAndDecode(request, body, new InstrumentedCall(recorder)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Publisher<?> executeAndDecode(Request request, BodyInserter<?, ? super ClientHttpRequest> body,
+                                          InstrumentedCall call) {
+        Publisher<?> decoded;
+        if (responseCache != null) {
+            decoded = responseCache.get(request,
+                    cacheRequest -> exchange(cacheRequest, body, call),
+                    response -> (Mono<Object>) decodingPlan.decodeBody(response));
+        } else if (singleFlight != null) {
+            decoded = singleFlight.execute(new RequestKey(request),
+                    () -> (Mono<Object>) decodingPlan.decodeBody(exchange(request, body, call)));
+        } else {
+            decoded = decodingPlan.decodeBody(exchange(request, body, call));
+        }
+        if (call == null) {
+            return decoded;
+        }
+        return decoded instanceof Flux
+                ? ((Flux<?>) decoded).doOnError(call::onError).doFinally(call::onFinally)
+                : ((Mono<?>) decoded).doOnError(call::onError).doFinally(call::onFinally);
+    }
+
+    /**
+     * @return the response of the request, failing on error statuses after the retries allowed by the retry policy.
+     */
+    private Mono<ClientResponse> exchange(Request request, BodyInserter<?, ? super ClientHttpRequest> body,
+                                          InstrumentedCall call) {
+        // Every subscription, retries included, sends the request again.
+        Mono<ClientResponse> exchange = Mono.defer(() -> {
+            try {
+                return client.executeReactive(request, this.options, body);
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+        });
+        if (call != null) {
+            exchange = exchange.doOnNext(call::onResponse);
+        }
+
+        Mono<ClientResponse> response;
+        if (retryPolicy == null) {
+            response = decodingPlan.checkStatus(exchange);
+        } else {
+            // Error decoders may fail with any exception, so the status is kept next to it for the retry policy.
+            // Every subscription deposits once, its retries resubscribe upstream of the deposit.
+            response = exchange
+                    .flatMap(r -> decodingPlan.checkStatus(Mono.just(r))
+                            .onErrorMap(e -> new ErrorStatusException(r.statusCode().value(), e)))
+                    .retryWhen(retryPolicy.retryWhen(request, retryBudget))
+                    .onErrorMap(ErrorStatusException.class, Throwable::getCause)
+                    .doOnSubscribe(subscription -> retryBudget.deposit());
+        }
+        // Retries are made within a single permit of the circuit breaker.
+        return circuitBreaker != null ? circuitBreaker.protect(response) : response;
     }
 
     private Request targetRequest(RequestTemplate template) {
         for (RequestInterceptor interceptor : requestInterceptors) {
             interceptor.apply(template);
         }
-        return target.apply(new RequestTemplate(template));
+        // The template is built per invocation, so it's handed to the target without another copy.
+        return target.apply(template);
+    }
+
+    /**
+     * Measurements of a single subscription, its signals are serialized so plain fields are enough.
+     */
+    private static final class InstrumentedCall {
+        private final MethodRecorder recorder;
+        private final long start;
+        private long respondedAt;
+        private int status;
+        private Throwable error;
+
+        private InstrumentedCall(MethodRecorder recorder) {
+            this.recorder = recorder;
+            this.start = System.nanoTime();
+            recorder.requestStarted();
+        }
+
+        private void onResponse(ClientResponse response) {
+            this.status = response.statusCode().value();
+            this.respondedAt = System.nanoTime();
+        }
+
+        private void onError(Throwable error) {
+            this.error = error;
+        }
+
+        private void onFinally(SignalType signal) {
+            long now = System.nanoTime();
+            if (signal == SignalType.CANCEL) {
+                recorder.requestCancelled(now - start);
+                return;
+            }
+            if (error == null) {
+                if (status == 0) {
+                    // No response of its own, the value came from the response cache or a shared call.
+                    recorder.requestCached(now - start);
+                    return;
+                }
+                recorder.responseDecoded(now - respondedAt);
+            }
+            recorder.requestEnded(status, now - start, error);
+        }
     }
 
     static class Factory {
@@ -101,25 +264,44 @@ final class ReactiveMethodHandler implements MethodHandler {
         private final List<RequestInterceptor> requestInterceptors;
         private final Logger logger;
         private final Logger.Level logLevel;
+        private final ReactiveEncoder encoder;
+        private final RetryBudget retryBudget;
+        private final ReactiveInstrumentation instrumentation;
 
         Factory(ReactiveClient client,
                 List<RequestInterceptor> requestInterceptors,
                 Logger logger,
-                Logger.Level logLevel) {
+                Logger.Level logLevel,
+                ReactiveEncoder encoder,
+                RetryBudget retryBudget,
+                ReactiveInstrumentation instrumentation) {
 
             this.client = checkNotNull(client, "client");
             this.requestInterceptors = checkNotNull(requestInterceptors, "requestInterceptors");
             this.logger = checkNotNull(logger, "logger");
             this.logLevel = checkNotNull(logLevel, "logLevel");
+            this.encoder = checkNotNull(encoder, "encoder");
+            this.retryBudget = checkNotNull(retryBudget, "retryBudget");
+            this.instrumentation = checkNotNull(instrumentation, "instrumentation");
         }
 
         MethodHandler create(Target<?> target,
                                     MethodMetadata md,
                                     RequestTemplate.Factory buildTemplateFromArgs,
-                                    Options options) {
+                                    Options options,
+                                    DecodingPlan decodingPlan,
+                                    ReactiveRetryPolicy retryPolicy,
+                                    ResponseCache responseCache,
+                                    SingleFlight<RequestKey, Object> singleFlight,
+                                    CircuitBreaker circuitBreaker,
+                                    MethodHandler fallback) {
 
-            return new ReactiveMethodHandler(
-                    target, client, requestInterceptors, logger, logLevel, md, buildTemplateFromArgs, options);
+            return new ReactiveMethodHandler(target, client, requestInterceptors, logger, logLevel, md,
+                    buildTemplateFromArgs, options, encoder, decodingPlan, retryPolicy, retryBudget,
+                    instrumentation != ReactiveInstrumentation.NOOP
+                            ? instrumentation.methodRecorder(target.name(), md.configKey())
+                            : null,
+                    responseCache, singleFlight, circuitBreaker, fallback);
         }
     }
 }
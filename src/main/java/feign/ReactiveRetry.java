@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeoutException;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Overrides the {@link ReactiveRetryPolicy} of the builder for a single method. A {@code maxAttempts} of 1 disables
+ * retries for the method. See {@link ReactiveRetryPolicy.Builder} for the meaning of each attribute.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface ReactiveRetry {
+
+    int maxAttempts() default ReactiveRetryPolicy.DEFAULT_MAX_ATTEMPTS;
+
+    long backoffMillis() default ReactiveRetryPolicy.DEFAULT_BACKOFF_MILLIS;
+
+    long maxBackoffMillis() default ReactiveRetryPolicy.DEFAULT_MAX_BACKOFF_MILLIS;
+
+    double jitter() default ReactiveRetryPolicy.DEFAULT_JITTER;
+
+    int[] retryableStatuses() default {502, 503, 504};
+
+    Class<? extends Throwable>[] retryableExceptions() default {IOException.class, TimeoutException.class};
+
+    boolean retryNonIdempotent() default false;
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import org.reactivestreams.Publisher;
+import org.springframework.web.client.HttpStatusCodeException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static feign.Util.checkArgument;
+
+/**
+ * Reactive replacement of {@link Retryer}, applied with {@link Mono#retryWhen(Function)} so that waiting for the
+ * next attempt never blocks a thread.
+ * <p>
+ * Like {@code ReactiveLBClient#getRequestSpecificRetryHandler}, connection failures are retried for every request,
+ * while other failures are retried for GET requests only, unless {@code retryNonIdempotent} is set. Every retry
+ * is also subject to the client's {@link RetryBudget}.
+ */
+public final class ReactiveRetryPolicy {
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+    static final long DEFAULT_BACKOFF_MILLIS = 100;
+    static final long DEFAULT_MAX_BACKOFF_MILLIS = 2000;
+    static final double DEFAULT_JITTER = 0.5;
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final double jitter;
+    private final Set<Integer> retryableStatuses;
+    private final List<Class<? extends Throwable>> retryableExceptions;
+    private final boolean retryNonIdempotent;
+
+    private ReactiveRetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.backoffMillis = builder.backoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.jitter = builder.jitter;
+        this.retryableStatuses = Collections.unmodifiableSet(new HashSet<>(builder.retryableStatuses));
+        this.retryableExceptions = Collections.unmodifiableList(new ArrayList<>(builder.retryableExceptions));
+        this.retryNonIdempotent = builder.retryNonIdempotent;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    static ReactiveRetryPolicy from(ReactiveRetry annotation) {
+        Builder builder = builder()
+                .maxAttempts(annotation.maxAttempts())
+                .backoff(Duration.ofMillis(annotation.backoffMillis()), Duration.ofMillis(annotation.maxBackoffMillis()))
+                .jitter(annotation.jitter())
+                .retryableStatuses(annotation.retryableStatuses())
+                .retryNonIdempotent(annotation.retryNonIdempotent());
+        builder.retryableExceptions.clear();
+        builder.retryableExceptions.addAll(Arrays.asList(annotation.retryableExceptions()));
+        return builder.build();
+    }
+
+    int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return the companion function for {@link Mono#retryWhen(Function)}, it is applied once per subscription so
+     * each subscription counts its own attempts.
+     */
+    Function<Flux<Throwable>, Publisher<?>> retryWhen(Request request, RetryBudget budget) {
+        final boolean idempotent = retryNonIdempotent || "GET".equals(request.method());
+        return errors -> {
+            final AtomicInteger failedAttempts = new AtomicInteger();
+            return errors.concatMap(error -> {
+                int attempt = failedAttempts.incrementAndGet();
+                if (attempt >= maxAttempts || !isRetryable(error, idempotent) || !budget.tryWithdraw()) {
+                    return Mono.error(error);
+                }
+                return Mono.delay(backoff(attempt));
+            });
+        };
+    }
+
+    boolean isRetryable(Throwable error, boolean idempotent) {
+        if (error instanceof ErrorStatusException) {
+            // The status decides, whatever exception the error decoder chose, which may still be retryable itself.
+            ErrorStatusException statusError = (ErrorStatusException) error;
+            return idempotent && retryableStatuses.contains(statusError.status())
+                    || isRetryable(statusError.getCause(), idempotent);
+        }
+        if (error instanceof ConnectException) {
+            // The request never left, so it's safe to send it again whatever its method.
+            return true;
+        }
+        if (!idempotent) {
+            return false;
+        }
+        if (error instanceof HttpStatusCodeException) {
+            return retryableStatuses.contains(((HttpStatusCodeException) error).getRawStatusCode());
+        }
+        for (Class<? extends Throwable> retryableException : retryableExceptions) {
+            if (retryableException.isInstance(error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exponential backoff, capped at {@code maxBackoffMillis}, spread by +/- {@code jitter} of its value.
+     */
+    Duration backoff(int attempt) {
+        long exponential = backoffMillis << Math.min(attempt - 1, 30);
+        long backoff = exponential < 0 ? maxBackoffMillis : Math.min(exponential, maxBackoffMillis);
+        if (jitter > 0) {
+            double factor = 1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble();
+            backoff = (long) (backoff * factor);
+        }
+        return Duration.ofMillis(backoff);
+    }
+
+    public static final class Builder {
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long backoffMillis = DEFAULT_BACKOFF_MILLIS;
+        private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+        private double jitter = DEFAULT_JITTER;
+        private final Set<Integer> retryableStatuses = new HashSet<>(Arrays.asList(502, 503, 504));
+        private final List<Class<? extends Throwable>> retryableExceptions =
+                new ArrayList<>(Arrays.asList(IOException.class, TimeoutException.class));
+        private boolean retryNonIdempotent;
+
+        Builder() {
+        }
+
+        /**
+         * Total number of attempts, including the first one. Defaults to 3.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            checkArgument(maxAttempts > 0, "maxAttempts must be positive but was %s", maxAttempts);
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Backoff before the first retry, doubled for every following one up to {@code maxBackoff}.
+         * Defaults to 100ms and 2s.
+         */
+        public Builder backoff(Duration firstBackoff, Duration maxBackoff) {
+            checkArgument(!firstBackoff.isNegative() && firstBackoff.compareTo(maxBackoff) <= 0,
+                    "firstBackoff must be between 0 and maxBackoff");
+            this.backoffMillis = firstBackoff.toMillis();
+            this.maxBackoffMillis = maxBackoff.toMillis();
+            return this;
+        }
+
+        /**
+         * Randomly spreads each backoff by up to the given fraction of its value. Defaults to 0.5.
+         */
+        public Builder jitter(double jitter) {
+            checkArgument(jitter >= 0 && jitter <= 1, "jitter must be between 0 and 1 but was %s", jitter);
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Replaces the retryable response statuses, 502, 503 and 504 by default.
+         */
+        public Builder retryableStatuses(int... statuses) {
+            this.retryableStatuses.clear();
+            for (int status : statuses) {
+                this.retryableStatuses.add(status);
+            }
+            return this;
+        }
+
+        /**
+         * Adds an exception type to retry, besides {@link IOException} and {@link TimeoutException}.
+         */
+        public Builder retryableException(Class<? extends Throwable> exception) {
+            this.retryableExceptions.add(exception);
+            return this;
+        }
+
+        /**
+         * Retries failures of all methods, not only of GET requests. The same as Ribbon's
+         * {@code OkToRetryOnAllOperations}.
+         */
+        public Builder retryNonIdempotent(boolean retryNonIdempotent) {
+            this.retryNonIdempotent = retryNonIdempotent;
+            return this;
+        }
+
+        public ReactiveRetryPolicy build() {
+            return new ReactiveRetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Identity of a fully resolved {@link Request}: its method, URL, headers and body.
+ */
+final class RequestKey {
+    private final Request request;
+    private final int hash;
+
+    RequestKey(Request request) {
+        this.request = request;
+        int result = request.method().hashCode();
+        result = 31 * result + request.url().hashCode();
+        result = 31 * result + request.headers().hashCode();
+        result = 31 * result + Arrays.hashCode(request.body());
+        this.hash = result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RequestKey)) {
+            return false;
+        }
+        Request other = ((RequestKey) o).request;
+        return hash == o.hashCode()
+                && request.method().equals(other.method())
+                && request.url().equals(other.url())
+                && Objects.equals(request.headers(), other.headers())
+                && Arrays.equals(request.body(), other.body());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
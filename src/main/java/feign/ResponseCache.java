@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per method cache of decoded responses, see {@link ReactiveCache}. Entries are kept in LRU order and, once the cache
+ * is full, a new entry only replaces the least recently used one when a {@link FrequencySketch} estimates it was
+ * requested more often (TinyLFU admission). This keeps one-off requests from flushing popular entries.
+ */
+final class ResponseCache {
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    private final long ttlNanos;
+    private final int maximumSize;
+    private final String[] keyHeaders;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final SingleFlight<String, Object> inFlight = new SingleFlight<>();
+
+    ResponseCache(long ttlMillis, int maximumSize, String[] keyHeaders) {
+        Util.checkArgument(maximumSize > 0, "maximumSize must be positive but was %s", maximumSize);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maximumSize = maximumSize;
+        this.keyHeaders = keyHeaders.clone();
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    static ResponseCache from(ReactiveCache annotation, MethodMetadata metadata, DecodingPlan decodingPlan) {
+        if (!"GET".equals(metadata.template().method()) || !Utils.isMono(decodingPlan.publisherType())
+                || decodingPlan.isStreaming()) {
+            throw new FeignException(String.format(
+                    "@ReactiveCache requires %s to be a GET method returning Mono, and not a streamed body.",
+                    metadata.configKey()));
+        }
+        return new ResponseCache(annotation.ttlMillis(), annotation.maximumSize(), annotation.keyHeaders());
+    }
+
+    /**
+     * @param exchange sends a request and fails on error statuses.
+     * @param decoder  decodes the body of a successful response.
+     */
+    Mono<Object> get(Request request,
+                     Function<Request, Mono<ClientResponse>> exchange,
+                     Function<Mono<ClientResponse>, Mono<Object>> decoder) {
+        return Mono.defer(() -> {
+            final String key = key(request);
+            final Entry cached = lookup(key);
+            if (cached != null && cached.expiresAt - System.nanoTime() > 0) {
+                return Mono.just(cached.value);
+            }
+
+            return inFlight.execute(key, () -> load(key, request, cached, exchange, decoder));
+        });
+    }
+
+    private Mono<Object> load(String key, Request request, Entry cached,
+                              Function<Request, Mono<ClientResponse>> exchange,
+                              Function<Mono<ClientResponse>, Mono<Object>> decoder) {
+        final boolean revalidate = cached != null && cached.etag != null;
+        return exchange.apply(revalidate ? withHeader(request, IF_NONE_MATCH, cached.etag) : request)
+                .flatMap(response -> {
+                    HttpHeaders headers = response.headers().asHttpHeaders();
+                    if (revalidate && response.statusCode() == HttpStatus.NOT_MODIFIED) {
+                        store(key, cached.value, cached.etag, headers);
+                        return response.body(BodyExtractors.toDataBuffers())
+                                .doOnNext(DataBufferUtils::release)
+                                .then(Mono.just(cached.value));
+                    }
+                    return decoder.apply(Mono.just(response))
+                            .doOnNext(value -> store(key, value, headers.getETag(), headers));
+                });
+    }
+
+    private void store(String key, Object value, String etag, HttpHeaders headers) {
+        long ttl = ttlNanos;
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim();
+                if (directive.equalsIgnoreCase("no-store")) {
+                    return;
+                } else if (directive.equalsIgnoreCase("no-cache")) {
+                    ttl = 0;
+                } else if (directive.regionMatches(true, 0, "max-age=", 0, 8)) {
+                    try {
+                        ttl = TimeUnit.SECONDS.toNanos(Long.parseLong(directive.substring(8)));
+                    } catch (NumberFormatException e) {
+                        // an invalid max-age leaves the configured time to live
+                    }
+                }
+            }
+        }
+        if (ttl <= 0 && etag == null) {
+            // Without an ETag an expired entry can't be revalidated, so there is no point in keeping it.
+            return;
+        }
+        put(key, new Entry(value, etag, System.nanoTime() + ttl));
+    }
+
+    private synchronized Entry lookup(String key) {
+        sketch.increment(key);
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        if (entries.size() >= maximumSize && !entries.containsKey(key)) {
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            Map.Entry<String, Entry> victim = eldest.next();
+            if (sketch.frequency(key) <= sketch.frequency(victim.getKey())) {
+                return;
+            }
+            eldest.remove();
+        }
+        entries.put(key, entry);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private String key(Request request) {
+        if (keyHeaders.length == 0) {
+            return request.method() + ' ' + request.url();
+        }
+        StringBuilder key = new StringBuilder(request.method()).append(' ').append(request.url());
+        for (String keyHeader : keyHeaders) {
+            key.append('\n').append(keyHeader).append(':');
+            for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+                if (header.getKey().equalsIgnoreCase(keyHeader)) {
+                    key.append(header.getValue());
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private static Request withHeader(Request request, String name, String value) {
+        Map<String, Collection<String>> headers = new LinkedHashMap<>(request.headers());
+        headers.put(name, Collections.singletonList(value));
+        return Request.create(request.method(), request.url(), headers, request.body(), request.charset());
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final String etag;
+        private final long expiresAt;
+
+        private Entry(Object value, String etag, long expiresAt) {
+            this.value = value;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static feign.Util.checkArgument;
+
+/**
+ * Token bucket shared by all the methods of a client, limiting retries to a fraction of the requests, so retries can't
+ * multiply the load on a backend which is already failing. Every request deposits {@code ratio} of a token, every
+ * retry withdraws a whole one. The bucket starts full and holds at most {@code capacity} tokens.
+ */
+public final class RetryBudget {
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    public RetryBudget(double ratio, int capacity) {
+        checkArgument(ratio >= 0, "ratio must not be negative but was %s", ratio);
+        checkArgument(capacity > 0, "capacity must be positive but was %s", capacity);
+        this.deposit = (long) (ratio * TOKEN);
+        this.capacity = capacity * TOKEN;
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    /**
+     * Allows 20% extra load from retries, on top of a burst of 10 retries.
+     */
+    public static RetryBudget create() {
+        return new RetryBudget(0.2, 10);
+    }
+
+    public static RetryBudget unlimited() {
+        return new RetryBudget(1, Integer.MAX_VALUE);
+    }
+
+    void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /**
+     * @return the number of retries currently available.
+     */
+    public long available() {
+        return balance.get() / TOKEN;
+    }
+}
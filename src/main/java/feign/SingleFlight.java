@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares a single upstream {@link Mono} between all the concurrent subscribers of the same key. The upstream is
+ * subscribed to by the first subscriber and cancelled only once every subscriber has cancelled. Once it terminates,
+ * the next subscriber of the key starts a new one.
+ */
+final class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Call> calls = new ConcurrentHashMap<>();
+
+    Mono<V> execute(K key, Supplier<Mono<V>> upstream) {
+        return Mono.defer(() -> {
+            for (; ; ) {
+                Call call = calls.get(key);
+                if (call == null) {
+                    Call created = new Call(key, upstream);
+                    call = calls.putIfAbsent(key, created);
+                    if (call == null) {
+                        call = created;
+                    }
+                }
+                Mono<V> joined = call.join();
+                if (joined != null) {
+                    return joined;
+                }
+                // The call terminated between the lookup and the join.
+                calls.remove(key, call);
+            }
+        });
+    }
+
+    int inFlight() {
+        return calls.size();
+    }
+
+    private final class Call {
+        private final K key;
+        private final Supplier<Mono<V>> upstream;
+        private final MonoProcessor<V> processor = MonoProcessor.create();
+        private final Mono<V> shared = processor.doOnCancel(this::leave);
+        private int subscribers;
+        private boolean done;
+        private Disposable subscription;
+
+        private Call(K key, Supplier<Mono<V>> upstream) {
+            this.key = key;
+            this.upstream = upstream;
+        }
+
+        private Mono<V> join() {
+            synchronized (this) {
+                if (done) {
+                    return null;
+                }
+                if (subscribers++ > 0) {
+                    return shared;
+                }
+            }
+
+            Mono<V> source;
+            try {
+                source = upstream.get();
+            } catch (Throwable e) {
+                source = Mono.error(e);
+            }
+            Disposable subscribed = source.subscribe(
+                    value -> {
+                        terminate();
+                        processor.onNext(value);
+                    },
+                    error -> {
+                        terminate();
+                        processor.onError(error);
+                    },
+                    () -> {
+                        terminate();
+                        processor.onComplete();
+                    });
+            synchronized (this) {
+                // The first subscriber hasn't subscribed to the shared Mono yet, so the call can't be cancelled here.
+                subscription = subscribed;
+            }
+            return shared;
+        }
+
+        private void terminate() {
+            synchronized (this) {
+                done = true;
+            }
+            calls.remove(key, this);
+        }
+
+        private void leave() {
+            Disposable cancelled;
+            synchronized (this) {
+                if (done || --subscribers > 0) {
+                    return;
+                }
+                done = true;
+                cancelled = subscription;
+            }
+            calls.remove(key, this);
+            if (cancelled != null) {
+                cancelled.dispose();
+            }
+        }
+    }
+}
@@ -15,9 +15,10 @@
  */
 package feign;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import sun.reflect.generics.reflectiveObjects.ParameterizedTypeImpl;
 
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 
 /**
@@ -28,16 +29,25 @@ public class Utils {
         return Mono.class.isAssignableFrom(clazz);
     }
 
-    public static ParameterizedTypeImpl getReactiveParameterizedType(Type type) {
-        if (!(type instanceof ParameterizedTypeImpl)) {
+    public static boolean isFlux(Class<?> clazz) {
+        return Flux.class.isAssignableFrom(clazz);
+    }
+
+    public static boolean isReactive(Class<?> clazz) {
+        return isMono(clazz) || isFlux(clazz);
+    }
+
+    public static ParameterizedType getReactiveParameterizedType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
             return null;
         }
 
-        ParameterizedTypeImpl parameterizedTypeImpl = (ParameterizedTypeImpl)type;
-        if (!isMono(parameterizedTypeImpl.getRawType())) {
-            throw new FeignException("Reactive-Feign supports only Reactor type Mono.");
+        ParameterizedType parameterizedType = (ParameterizedType) type;
+        Type rawType = parameterizedType.getRawType();
+        if (!(rawType instanceof Class) || !isReactive((Class<?>) rawType)) {
+            throw new FeignException("Reactive-Feign supports only Reactor types Mono and Flux.");
         }
 
-        return parameterizedTypeImpl;
+        return parameterizedType;
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign.micrometer;
+
+import feign.ReactiveInstrumentation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static feign.Util.checkNotNull;
+
+/**
+ * {@link ReactiveInstrumentation} recording into a Micrometer {@link MeterRegistry}. Request timers publish
+ * percentile histograms, which Micrometer backs with HDR histograms. Meters are registered when first needed and
+ * looked up without allocating afterwards.
+ * <ul>
+ * <li>{@code reactive.feign.requests} timer, tagged by client, method and status class, or {@code CACHED} for calls
+ * answered without a request of their own</li>
+ * <li>{@code reactive.feign.requests.active} gauge, tagged by client and method</li>
+ * <li>{@code reactive.feign.errors} counter, tagged by client, method and exception</li>
+ * <li>{@code reactive.feign.encode} and {@code reactive.feign.decode} timers, tagged by client and method</li>
+ * <li>{@code reactive.feign.connection.acquire} timer, tagged by pool</li>
+ * <li>{@code reactive.feign.lb.requests} counter, tagged by client and server</li>
+ * <li>{@code reactive.feign.limit} gauge and {@code reactive.feign.limit.rejected} counter, tagged by key</li>
+ * </ul>
+ */
+public final class MicrometerInstrumentation implements ReactiveInstrumentation {
+    private static final String[] STATUS_CLASSES = {"NONE", "1xx", "2xx", "3xx", "4xx", "5xx", "CANCELLED", "CACHED"};
+    private static final int NO_STATUS = 0;
+    private static final int CANCELLED = 6;
+    private static final int CACHED = 7;
+
+    private final MeterRegistry registry;
+
+    public MicrometerInstrumentation(MeterRegistry registry) {
+        this.registry = checkNotNull(registry, "registry");
+    }
+
+    @Override
+    public MethodRecorder methodRecorder(String clientName, String configKey) {
+        return new MicrometerMethodRecorder(registry, clientName, configKey);
+    }
+
+    @Override
+    public ConnectionRecorder connectionRecorder(String poolName) {
+        final Timer acquire = Timer.builder("reactive.feign.connection.acquire")
+                .tag("pool", poolName)
+                .publishPercentileHistogram()
+                .register(registry);
+        return new ConnectionRecorder() {
+            @Override
+            public void connectionAcquired(long durationNanos) {
+                acquire.record(durationNanos, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    @Override
+    public LoadBalancerRecorder loadBalancerRecorder(String clientName) {
+        final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+        return new LoadBalancerRecorder() {
+            @Override
+            public void serverChosen(String serverId) {
+                Counter counter = counters.get(serverId);
+                if (counter == null) {
+                    counter = counters.computeIfAbsent(serverId, id -> Counter.builder("reactive.feign.lb.requests")
+                            .tag("client", clientName)
+                            .tag("server", id)
+                            .register(registry));
+                }
+                counter.increment();
+            }
+        };
+    }
+
+    @Override
+    public LimiterRecorder limiterRecorder(String key) {
+        final AtomicInteger limit = new AtomicInteger();
+        Gauge.builder("reactive.feign.limit", limit, AtomicInteger::get)
+                .tag("key", key)
+                .register(registry);
+        final Counter rejected = Counter.builder("reactive.feign.limit.rejected")
+                .tag("key", key)
+                .register(registry);
+        return new LimiterRecorder() {
+            @Override
+            public void limitChanged(int newLimit) {
+                limit.set(newLimit);
+            }
+
+            @Override
+            public void requestRejected() {
+                rejected.increment();
+            }
+        };
+    }
+
+    private static final class MicrometerMethodRecorder implements MethodRecorder {
+        private final MeterRegistry registry;
+        private final String clientName;
+        private final String configKey;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicReferenceArray<Timer> requests = new AtomicReferenceArray<>(STATUS_CLASSES.length);
+        private final ConcurrentMap<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+        private final Timer encode;
+        private final Timer decode;
+
+        private MicrometerMethodRecorder(MeterRegistry registry, String clientName, String configKey) {
+            this.registry = registry;
+            this.clientName = clientName;
+            this.configKey = configKey;
+            Gauge.builder("reactive.feign.requests.active", active, AtomicInteger::get)
+                    .tag("client", clientName)
+                    .tag("method", configKey)
+                    .register(registry);
+            this.encode = Timer.builder("reactive.feign.encode")
+                    .tag("client", clientName)
+                    .tag("method", configKey)
+                    .register(registry);
+            this.decode = Timer.builder("reactive.feign.decode")
+                    .tag("client", clientName)
+                    .tag("method", configKey)
+                    .register(registry);
+        }
+
+        @Override
+        public void requestStarted() {
+            active.incrementAndGet();
+        }
+
+        @Override
+        public void requestEnded(int status, long latencyNanos, Throwable error) {
+            active.decrementAndGet();
+            int statusClass = status >= 100 && status < 600 ? status / 100 : NO_STATUS;
+            requests(statusClass).record(latencyNanos, TimeUnit.NANOSECONDS);
+            if (error != null) {
+                errors(error.getClass()).increment();
+            }
+        }
+
+        @Override
+        public void requestCached(long latencyNanos) {
+            active.decrementAndGet();
+            requests(CACHED).record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void requestCancelled(long latencyNanos) {
+            active.decrementAndGet();
+            requests(CANCELLED).record(latencyNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void requestEncoded(long durationNanos) {
+            encode.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void responseDecoded(long durationNanos) {
+            decode.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private Timer requests(int statusClass) {
+            Timer timer = requests.get(statusClass);
+            if (timer == null) {
+                // Registering is idempotent, racing threads get the same timer.
+                timer = Timer.builder("reactive.feign.requests")
+                        .tag("client", clientName)
+                        .tag("method", configKey)
+                        .tag("status", STATUS_CLASSES[statusClass])
+                        .publishPercentileHistogram()
+                        .register(registry);
+                requests.set(statusClass, timer);
+            }
+            return timer;
+        }
+
+        private Counter errors(Class<?> exception) {
+            Counter counter = errors.get(exception);
+            if (counter == null) {
+                counter = errors.computeIfAbsent(exception, type -> Counter.builder("reactive.feign.errors")
+                        .tag("client", clientName)
+                        .tag("method", configKey)
+                        .tag("exception", type.getSimpleName())
+                        .register(registry));
+            }
+            return counter;
+        }
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the {@code feign.Contract} of a {@link feign.ReactiveFeignClient} interface, which builds the metadata
+ * {@code feign.Contract.Default} would parse from its annotations. Violations of the contract are reported as
+ * compilation errors, with the messages of {@code feign.Contract.Default}.
+ * <p>
+ * No contract is written when a type of the interface can't be built in source, e.g. a type variable of a method,
+ * the interface is then parsed at runtime. Interfaces without any {@code feign.RequestLine} are left to the custom
+ * contracts they are meant for.
+ */
+final class ContractWriter {
+
+    static final String SUFFIX = "_ReactiveFeignContract";
+
+    private static final String REQUEST_LINE = "feign.RequestLine";
+    private static final String BODY = "feign.Body";
+    private static final String HEADERS = "feign.Headers";
+    private static final String PARAM = "feign.Param";
+    private static final String QUERY_MAP = "feign.QueryMap";
+    private static final String HEADER_MAP = "feign.HeaderMap";
+    private static final String TO_STRING_EXPANDER = "feign.Param.ToStringExpander";
+    private static final String METADATA = "feign.GeneratedMetadata";
+
+    private final ProcessingEnvironment env;
+    private final TypeElement type;
+    private final String packageName;
+    private final List<String> typeHeaders = new ArrayList<>();
+    private final List<String> typeHeaderValues = new ArrayList<>();
+    private boolean valid = true;
+    private boolean expressible = true;
+
+    ContractWriter(ProcessingEnvironment env, TypeElement type) {
+        this.env = env;
+        this.type = type;
+        this.packageName = env.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    /**
+     * @param configKeys the config keys of the methods, in their order
+     */
+    void write(List<ExecutableElement> methods, List<String> configKeys) {
+        boolean annotated = false;
+        for (ExecutableElement method : methods) {
+            annotated |= annotation(method, REQUEST_LINE) != null;
+        }
+        if (!annotated) {
+            return;
+        }
+        List<? extends TypeMirror> interfaces = type.getInterfaces();
+        if (interfaces.size() > 1) {
+            error(type, "Only single inheritance supported: %s", type.getSimpleName());
+            return;
+        }
+        if (interfaces.size() == 1) {
+            TypeElement parent = (TypeElement) env.getTypeUtils().asElement(interfaces.get(0));
+            if (!parent.getInterfaces().isEmpty()) {
+                error(type, "Only single-level inheritance supported: %s", type.getSimpleName());
+                return;
+            }
+            typeHeaders.add(typeHeaders(parent));
+        }
+        typeHeaders.add(typeHeaders(type));
+
+        List<String> bodies = new ArrayList<>(methods.size());
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < methods.size(); i++) {
+            if (!keys.add(configKeys.get(i))) {
+                error(methods.get(i), "Overrides unsupported: %s", configKeys.get(i));
+            }
+            bodies.add(method(methods.get(i), configKeys.get(i)));
+        }
+        if (!valid) {
+            return;
+        }
+        if (!expressible) {
+            env.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "The contract of " + type.getQualifiedName() + " is parsed at runtime, its types can't be "
+                            + "built in source", type);
+            return;
+        }
+        writeSource(bodies);
+    }
+
+    /**
+     * @return the arguments of the call adding the headers of the given type, or {@code null} when it has none.
+     */
+    private String typeHeaders(TypeElement element) {
+        AnnotationMirror headers = annotation(element, HEADERS);
+        if (headers == null) {
+            return null;
+        }
+        List<String> values = strings(headers, "value");
+        if (values.isEmpty()) {
+            error(element, "Headers annotation was empty on type %s.", element.getQualifiedName());
+            return null;
+        }
+        typeHeaderValues.addAll(values);
+        return headerArguments(element, values);
+    }
+
+    /**
+     * @return the statements building the metadata of the method.
+     */
+    private String method(ExecutableElement method, String configKey) {
+        ExecutableType methodType =
+                (ExecutableType) env.getTypeUtils().asMemberOf((DeclaredType) type.asType(), method);
+        StringBuilder code = new StringBuilder();
+        code.append(String.format("        feign.MethodMetadata data = %s.newMetadata(%s, %s);%n",
+                METADATA, literal(configKey), typeExpression(methodType.getReturnType())));
+        for (String headers : typeHeaders) {
+            if (headers != null) {
+                code.append(String.format("        %s.typeHeaders(data, %s);%n", METADATA, headers));
+            }
+        }
+
+        // The state of the template, as far as the parameters need it.
+        String url = "";
+        List<String> queryValues = new ArrayList<>();
+        List<String> headerValues = new ArrayList<>(typeHeaderValues);
+
+        boolean hasMethod = false;
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            String name = qualifiedName(annotation);
+            if (REQUEST_LINE.equals(name)) {
+                String requestLine = (String) value(annotation, "value");
+                if (requestLine.isEmpty()) {
+                    error(method, "RequestLine annotation was empty on method %s.", method.getSimpleName());
+                    continue;
+                }
+                hasMethod = true;
+                int space = requestLine.indexOf(' ');
+                if (space == -1) {
+                    if (requestLine.indexOf('/') != -1) {
+                        error(method, "RequestLine annotation didn't start with an HTTP verb on method %s.",
+                                method.getSimpleName());
+                    }
+                    code.append(String.format("        data.template().method(%s);%n", literal(requestLine)));
+                    continue;
+                }
+                code.append(String.format("        data.template().method(%s);%n",
+                        literal(requestLine.substring(0, space))));
+                // Skips the HTTP version, if any.
+                int last = requestLine.lastIndexOf(' ');
+                String path = space == last ? requestLine.substring(space + 1) : requestLine.substring(space + 1, last);
+                code.append(String.format("        data.template().append(%s);%n", literal(path)));
+                if (hasElement(annotation, "decodeSlash")) {
+                    code.append(String.format("        data.template().decodeSlash(%s);%n",
+                            value(annotation, "decodeSlash")));
+                }
+                int query = path.indexOf('?');
+                url = query == -1 ? path : path.substring(0, query);
+                if (query != -1) {
+                    for (String pair : path.substring(query + 1).split("&")) {
+                        int equals = pair.indexOf('=');
+                        queryValues.add(equals == -1 ? null : pair.substring(equals + 1));
+                    }
+                }
+            } else if (BODY.equals(name)) {
+                String body = (String) value(annotation, "value");
+                if (body.isEmpty()) {
+                    error(method, "Body annotation was empty on method %s.", method.getSimpleName());
+                    continue;
+                }
+                code.append(String.format("        data.template().%s(%s);%n",
+                        body.indexOf('{') == -1 ? "body" : "bodyTemplate", literal(body)));
+            } else if (HEADERS.equals(name)) {
+                List<String> headers = strings(annotation, "value");
+                if (headers.isEmpty()) {
+                    error(method, "Headers annotation was empty on method %s.", method.getSimpleName());
+                    continue;
+                }
+                headerValues.addAll(headers);
+                code.append(String.format("        data.template().headers(%s.headers(%s));%n",
+                        METADATA, headerArguments(method, headers)));
+            }
+        }
+        if (!hasMethod) {
+            error(method, "Method %s not annotated with HTTP method type (ex. GET, POST)", method.getSimpleName());
+        }
+
+        List<? extends VariableElement> parameters = method.getParameters();
+        List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+        boolean formParams = false;
+        boolean hasBody = false;
+        boolean hasQueryMap = false;
+        boolean hasHeaderMap = false;
+        StringBuilder expanders = new StringBuilder();
+        boolean instantiable = true;
+        for (int i = 0; i < parameters.size(); i++) {
+            VariableElement parameter = parameters.get(i);
+            boolean httpAnnotation = false;
+            for (AnnotationMirror annotation : parameter.getAnnotationMirrors()) {
+                String name = qualifiedName(annotation);
+                if (PARAM.equals(name)) {
+                    String paramName = (String) value(annotation, "value");
+                    if (paramName.isEmpty()) {
+                        error(parameter, "Param annotation was empty on param %s.", i);
+                        continue;
+                    }
+                    code.append(String.format("        %s.param(data, %d, %s);%n", METADATA, i, literal(paramName)));
+                    TypeElement expander = (TypeElement) ((DeclaredType) value(annotation, "expander")).asElement();
+                    if (!TO_STRING_EXPANDER.equals(expander.getQualifiedName().toString())) {
+                        code.append(String.format("        data.indexToExpanderClass().put(%d, %s.class);%n",
+                                i, expander.getQualifiedName()));
+                        if (instantiable && constructible(expander)) {
+                            expanders.append(String.format("        expanders.put(%d, new %s());%n",
+                                    i, expander.getQualifiedName()));
+                        } else {
+                            instantiable = false;
+                        }
+                    }
+                    httpAnnotation = true;
+                    formParams |= isFormParam('{' + paramName + '}', url, queryValues, headerValues);
+                } else if (QUERY_MAP.equals(name)) {
+                    if (hasQueryMap) {
+                        error(parameter, "QueryMap annotation was present on multiple parameters.");
+                    }
+                    hasQueryMap = true;
+                    checkMap(parameter, parameterTypes.get(i), "QueryMap");
+                    code.append(String.format("        data.queryMapIndex(%d);%n", i));
+                    if (hasElement(annotation, "encoded")) {
+                        code.append(String.format("        data.queryMapEncoded(%s);%n",
+                                value(annotation, "encoded")));
+                    }
+                    httpAnnotation = true;
+                } else if (HEADER_MAP.equals(name)) {
+                    if (hasHeaderMap) {
+                        error(parameter, "HeaderMap annotation was present on multiple parameters.");
+                    }
+                    hasHeaderMap = true;
+                    checkMap(parameter, parameterTypes.get(i), "HeaderMap");
+                    code.append(String.format("        data.headerMapIndex(%d);%n", i));
+                    httpAnnotation = true;
+                }
+            }
+            if (isUri(parameterTypes.get(i))) {
+                code.append(String.format("        data.urlIndex(%d);%n", i));
+            } else if (!httpAnnotation) {
+                if (formParams) {
+                    error(parameter, "Body parameters cannot be used with form parameters.");
+                }
+                if (hasBody) {
+                    error(parameter, "Method has too many Body parameters: %s", method);
+                }
+                hasBody = true;
+                code.append(String.format("        data.bodyIndex(%d);%n", i));
+                code.append(String.format("        data.bodyType(%s);%n", typeExpression(parameterTypes.get(i))));
+            }
+        }
+        if (instantiable && expanders.length() > 0) {
+            // The expanders are created here, instead of reflectively by the method handlers.
+            code.append(String.format("        java.util.Map<Integer, feign.Param.Expander> expanders"
+                    + " = new java.util.LinkedHashMap<>();%n"));
+            code.append(expanders);
+            code.append(String.format("        data.indexToExpander(expanders);%n"));
+        }
+        return code.append(String.format("        return data;%n")).toString();
+    }
+
+    /**
+     * Mirrors the form parameters of {@code feign.Contract.Default}: parameters the url, query values and headers
+     * don't refer to.
+     */
+    private static boolean isFormParam(String variable, String url, List<String> queryValues,
+                                       List<String> headerValues) {
+        if (url.contains(variable) || queryValues.contains(variable)) {
+            return false;
+        }
+        for (String header : headerValues) {
+            if (header.contains(variable)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String headerArguments(Element element, List<String> headers) {
+        StringBuilder arguments = new StringBuilder();
+        for (String header : headers) {
+            int colon = header.indexOf(':');
+            if (colon == -1 || header.length() < colon + 2) {
+                error(element, "Header %s must be formatted as 'Name: value'", header);
+            }
+            arguments.append(arguments.length() > 0 ? ", " : "").append(literal(header));
+        }
+        return arguments.toString();
+    }
+
+    private void checkMap(Element parameter, TypeMirror parameterType, String annotation) {
+        TypeMirror map = env.getTypeUtils().erasure(
+                env.getElementUtils().getTypeElement("java.util.Map").asType());
+        if (!env.getTypeUtils().isAssignable(env.getTypeUtils().erasure(parameterType), map)) {
+            error(parameter, "%s parameter must be a Map: %s", annotation, parameterType);
+        }
+    }
+
+    private static boolean isUri(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.net.URI");
+    }
+
+    /**
+     * @return whether the generated contract can create the expander with {@code new}.
+     */
+    private boolean constructible(TypeElement expander) {
+        if (expander.getModifiers().contains(Modifier.ABSTRACT) || !accessible(expander)) {
+            return false;
+        }
+        for (Element enclosing = expander; enclosing.getKind().isClass() || enclosing.getKind().isInterface();
+             enclosing = enclosing.getEnclosingElement()) {
+            if (enclosing.getEnclosingElement().getKind() != ElementKind.PACKAGE
+                    && !enclosing.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(expander.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                return !constructor.getModifiers().contains(Modifier.PRIVATE);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the generated contract, in the package of the interface, can refer to the given type.
+     */
+    private boolean accessible(TypeElement element) {
+        for (Element enclosing = element; enclosing.getKind() != ElementKind.PACKAGE;
+             enclosing = enclosing.getEnclosingElement()) {
+            Set<Modifier> modifiers = enclosing.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)
+                    || (!modifiers.contains(Modifier.PUBLIC) && !packageName.equals(
+                    env.getElementUtils().getPackageOf(element).getQualifiedName().toString()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the source building the {@link java.lang.reflect.Type} of the given type, flagging the interface as not
+     * expressible when it can't be built.
+     */
+    private String typeExpression(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+            case FLOAT:
+            case DOUBLE:
+                return type + ".class";
+            case ARRAY:
+                TypeMirror component = ((ArrayType) type).getComponentType();
+                String componentExpression = typeExpression(component);
+                return isClass(component)
+                        ? componentExpression.substring(0, componentExpression.length() - ".class".length())
+                        + "[].class"
+                        : METADATA + ".array(" + componentExpression + ")";
+            case DECLARED:
+                DeclaredType declared = (DeclaredType) type;
+                TypeElement element = (TypeElement) declared.asElement();
+                TypeMirror enclosing = declared.getEnclosingType();
+                if (!accessible(element) || (enclosing.getKind() == TypeKind.DECLARED
+                        && !((DeclaredType) enclosing).getTypeArguments().isEmpty())) {
+                    expressible = false;
+                    return "null";
+                }
+                if (declared.getTypeArguments().isEmpty()) {
+                    return element.getQualifiedName() + ".class";
+                }
+                StringBuilder expression = new StringBuilder(METADATA).append(".parameterized(")
+                        .append(element.getQualifiedName()).append(".class");
+                for (TypeMirror argument : declared.getTypeArguments()) {
+                    expression.append(", ").append(typeExpression(argument));
+                }
+                return expression.append(')').toString();
+            case WILDCARD:
+                WildcardType wildcard = (WildcardType) type;
+                return METADATA + ".wildcard("
+                        + (wildcard.getExtendsBound() != null ? typeExpression(wildcard.getExtendsBound()) : "Object.class")
+                        + ", "
+                        + (wildcard.getSuperBound() != null ? typeExpression(wildcard.getSuperBound()) : "null")
+                        + ")";
+            default:
+                // Type variables of methods, which reflection alone can create.
+                expressible = false;
+                return "null";
+        }
+    }
+
+    /**
+     * @return whether the type is represented by a {@code Class} rather than a generic type.
+     */
+    private static boolean isClass(TypeMirror type) {
+        switch (type.getKind()) {
+            case DECLARED:
+                return ((DeclaredType) type).getTypeArguments().isEmpty();
+            case ARRAY:
+                return isClass(((ArrayType) type).getComponentType());
+            default:
+                return type.getKind().isPrimitive();
+        }
+    }
+
+    private void writeSource(List<String> bodies) {
+        String simpleName = ReactiveFeignProcessor.generatedSimpleName(packageName,
+                env.getElementUtils().getBinaryName(type).toString(), SUFFIX);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (PrintWriter out = new PrintWriter(env.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.printf("package %s;%n%n", packageName);
+            }
+            out.printf("/**%n * Generated by %s for {@link %s}.%n */%n",
+                    ReactiveFeignProcessor.class.getName(), type.getQualifiedName());
+            out.printf("public final class %s implements feign.Contract {%n", simpleName);
+
+            out.printf("%n    @Override%n");
+            out.printf("    public java.util.List<feign.MethodMetadata> parseAndValidatateMetadata(Class<?> targetType) {%n");
+            out.printf("        java.util.List<feign.MethodMetadata> result = new java.util.ArrayList<>(%d);%n",
+                    bodies.size());
+            for (int i = 0; i < bodies.size(); i++) {
+                out.printf("        result.add(method%d());%n", i);
+            }
+            out.printf("        return result;%n");
+            out.printf("    }%n");
+
+            for (int i = 0; i < bodies.size(); i++) {
+                out.printf("%n    private static feign.MethodMetadata method%d() {%n", i);
+                out.print(bodies.get(i));
+                out.printf("    }%n");
+            }
+            out.printf("}%n");
+        } catch (IOException e) {
+            error(type, "Can't write %s: %s", qualifiedName, e.getMessage());
+        }
+    }
+
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (name.equals(qualifiedName(annotation))) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static String qualifiedName(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    /**
+     * @return whether the annotation type has the given element, which depends on the version of Feign.
+     */
+    private static boolean hasElement(AnnotationMirror annotation, String name) {
+        for (ExecutableElement element : ElementFilter.methodsIn(
+                annotation.getAnnotationType().asElement().getEnclosedElements())) {
+            if (element.getSimpleName().contentEquals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object value(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : env.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> strings(AnnotationMirror annotation, String name) {
+        List<String> strings = new ArrayList<>();
+        for (AnnotationValue value : (List<? extends AnnotationValue>) value(annotation, name)) {
+            strings.add((String) value.getValue());
+        }
+        return strings;
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String format, Object... args) {
+        valid = false;
+        env.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+    }
+}
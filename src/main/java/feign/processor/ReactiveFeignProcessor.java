@@ -0,0 +1,283 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates the implementations and contracts of {@link feign.ReactiveFeignClient} interfaces, see there.
+ */
+@SupportedAnnotationTypes(ReactiveFeignProcessor.REACTIVE_FEIGN_CLIENT)
+public final class ReactiveFeignProcessor extends AbstractProcessor {
+
+    static final String REACTIVE_FEIGN_CLIENT = "feign.ReactiveFeignClient";
+    static final String SUFFIX = "_ReactiveFeign";
+
+    private static final String MONO = "reactor.core.publisher.Mono";
+    private static final String FLUX = "reactor.core.publisher.Flux";
+    private static final String METHOD_HANDLER = "feign.InvocationHandlerFactory.MethodHandler";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(REACTIVE_FEIGN_CLIENT);
+        if (annotation == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@ReactiveFeignClient is only supported on interfaces");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            if (!type.getTypeParameters().isEmpty()) {
+                error(type, "Parameterized types unsupported: %s", type.getSimpleName());
+                continue;
+            }
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                error(type, "@ReactiveFeignClient interface %s must not be private", type.getSimpleName());
+                continue;
+            }
+
+            List<ExecutableElement> methods = abstractMethods(type);
+            List<String> configKeys = new ArrayList<>(methods.size());
+            boolean valid = true;
+            for (ExecutableElement method : methods) {
+                valid &= validate(type, method);
+                configKeys.add(configKey(type, method));
+            }
+            if (valid) {
+                write(type, methods, configKeys);
+            }
+            new ContractWriter(processingEnv, type).write(methods, configKeys);
+        }
+        return true;
+    }
+
+    private List<ExecutableElement> abstractMethods(TypeElement type) {
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Element owner = method.getEnclosingElement();
+            if (method.getModifiers().contains(Modifier.ABSTRACT)
+                    && owner.getKind() == ElementKind.INTERFACE) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private boolean validate(TypeElement type, ExecutableElement method) {
+        String publisher = publisherType(memberType(type, method).getReturnType());
+        if (publisher == null) {
+            error(method, "Method %s of class %s must return Reactor type Mono or Flux.",
+                    method.getSimpleName(), type.getSimpleName());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return {@link #MONO} or {@link #FLUX}, or {@code null} for any other type.
+     */
+    private String publisherType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        return MONO.equals(name) || FLUX.equals(name) ? name : null;
+    }
+
+    private ExecutableType memberType(TypeElement type, ExecutableElement method) {
+        return (ExecutableType) processingEnv.getTypeUtils().asMemberOf((DeclaredType) type.asType(), method);
+    }
+
+    /**
+     * @return the key of the method handler, as {@link feign.Feign#configKey} builds it.
+     */
+    private String configKey(TypeElement type, ExecutableElement method) {
+        StringBuilder key = new StringBuilder()
+                .append(type.getSimpleName()).append('#').append(method.getSimpleName()).append('(');
+        List<? extends TypeMirror> parameters = memberType(type, method).getParameterTypes();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(rawSimpleName(parameters.get(i)));
+        }
+        return key.append(')').toString();
+    }
+
+    private String rawSimpleName(TypeMirror type) {
+        switch (type.getKind()) {
+            case TYPEVAR:
+                // Feign takes the raw type of a type variable to be Object, whatever its bounds.
+                return "Object";
+            case DECLARED:
+                return ((DeclaredType) type).asElement().getSimpleName().toString();
+            case ARRAY:
+                return rawSimpleName(((ArrayType) type).getComponentType()) + "[]";
+            default:
+                return type.toString();
+        }
+    }
+
+    static String generatedSimpleName(String packageName, String binaryName, String suffix) {
+        String name = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        return name.replace('$', '_') + suffix;
+    }
+
+    private void write(TypeElement type, List<ExecutableElement> methods, List<String> configKeys) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String simpleName = generatedSimpleName(packageName,
+                processingEnv.getElementUtils().getBinaryName(type).toString(), SUFFIX);
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try (PrintWriter out = new PrintWriter(
+                processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.printf("package %s;%n%n", packageName);
+            }
+            out.printf("/**%n * Generated by %s for {@link %s}.%n */%n",
+                    ReactiveFeignProcessor.class.getName(), type.getQualifiedName());
+            out.printf("@SuppressWarnings(\"unchecked\")%n");
+            out.printf("public final class %s implements %s {%n%n", simpleName, type.getQualifiedName());
+            out.printf("    private static final Object[] NO_ARGUMENTS = new Object[0];%n%n");
+            out.printf("    private final feign.Target<?> target;%n");
+            for (int i = 0; i < methods.size(); i++) {
+                out.printf("    private final %s handler%d;%n", METHOD_HANDLER, i);
+            }
+
+            out.printf("%n    public %s(feign.Target<?> target, java.util.Map<String, %s> handlers) {%n",
+                    simpleName, METHOD_HANDLER);
+            out.printf("        this.target = target;%n");
+            for (int i = 0; i < methods.size(); i++) {
+                out.printf("        this.handler%d = handler(handlers, \"%s\");%n", i, configKeys.get(i));
+            }
+            out.printf("    }%n");
+
+            for (int i = 0; i < methods.size(); i++) {
+                writeMethod(out, type, methods.get(i), i);
+            }
+
+            out.printf("%n    private static %1$s handler(java.util.Map<String, %1$s> handlers, String configKey) {%n",
+                    METHOD_HANDLER);
+            out.printf("        %s handler = handlers.get(configKey);%n", METHOD_HANDLER);
+            out.printf("        if (handler == null) {%n");
+            out.printf("            throw new IllegalArgumentException(\"No method handler for \" + configKey);%n");
+            out.printf("        }%n");
+            out.printf("        return handler;%n");
+            out.printf("    }%n");
+
+            out.printf("%n    @Override%n    public boolean equals(Object other) {%n");
+            out.printf("        return other instanceof %1$s && target.equals(((%1$s) other).target);%n", simpleName);
+            out.printf("    }%n");
+            out.printf("%n    @Override%n    public int hashCode() {%n        return target.hashCode();%n    }%n");
+            out.printf("%n    @Override%n    public String toString() {%n        return target.toString();%n    }%n");
+            out.printf("}%n");
+        } catch (IOException e) {
+            error(type, "Can't write %s: %s", qualifiedName, e.getMessage());
+        }
+    }
+
+    private void writeMethod(PrintWriter out, TypeElement type, ExecutableElement method, int index) {
+        ExecutableType methodType = memberType(type, method);
+        String returnType = methodType.getReturnType().toString();
+
+        out.printf("%n    @Override%n    public ");
+        List<? extends TypeParameterElement> typeParameters = method.getTypeParameters();
+        if (!typeParameters.isEmpty()) {
+            out.print('<');
+            for (int i = 0; i < typeParameters.size(); i++) {
+                TypeParameterElement typeParameter = typeParameters.get(i);
+                out.print(i > 0 ? ", " : "");
+                out.print(typeParameter.getSimpleName());
+                List<? extends TypeMirror> bounds = typeParameter.getBounds();
+                for (int j = 0; j < bounds.size(); j++) {
+                    if (j == 0 && bounds.size() == 1 && "java.lang.Object".equals(bounds.get(0).toString())) {
+                        break;
+                    }
+                    out.print(j == 0 ? " extends " : " & ");
+                    out.print(bounds.get(j));
+                }
+            }
+            out.print("> ");
+        }
+        out.printf("%s %s(", returnType, method.getSimpleName());
+        List<? extends TypeMirror> parameters = methodType.getParameterTypes();
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeMirror parameter = parameters.get(i);
+            out.print(i > 0 ? ", " : "");
+            if (method.isVarArgs() && i == parameters.size() - 1) {
+                out.printf("%s... arg%d", ((ArrayType) parameter).getComponentType(), i);
+            } else {
+                out.printf("%s arg%d", parameter, i);
+            }
+        }
+        out.print(')');
+        List<? extends TypeMirror> thrownTypes = methodType.getThrownTypes();
+        for (int i = 0; i < thrownTypes.size(); i++) {
+            out.print(i == 0 ? " throws " : ", ");
+            out.print(thrownTypes.get(i));
+        }
+        out.printf(" {%n");
+
+        StringBuilder arguments = new StringBuilder();
+        if (parameters.isEmpty()) {
+            arguments.append("NO_ARGUMENTS");
+        } else {
+            arguments.append("new Object[]{");
+            for (int i = 0; i < parameters.size(); i++) {
+                arguments.append(i > 0 ? ", " : "").append("arg").append(i);
+            }
+            arguments.append('}');
+        }
+        out.printf("        try {%n");
+        out.printf("            return (%s) handler%d.invoke(%s);%n", returnType, index, arguments);
+        out.printf("        } catch (Throwable e) {%n");
+        out.printf("            return %s.error(e);%n", publisherType(methodType.getReturnType()));
+        out.printf("        }%n");
+        out.printf("    }%n");
+    }
+
+    private void error(Element element, String format, Object... args) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 Hanan Aharonof.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feign.ribbon;
+
+import com.netflix.client.ServerLoadListener;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+
+/**
+ * Power of two choices over the peak EWMA latency of every server, weighted by its outstanding calls. Two random
+ * reachable servers are compared and the one with the lower {@code latency * (outstanding + 1)} is chosen.
+ * <p>
+ * The latency estimate jumps to a sample higher than it and decays towards lower ones, so a server which slows
+ * down is avoided at once and recovers gradually. Failed calls count as at least {@code failurePenalty}, so a
+ * server failing fast doesn't attract traffic. Cancelled calls only stop counting as outstanding.
+ * <p>
+ * Latencies are fed by {@link com.netflix.client.AbstractReactiveLoadBalancerAwareClient}, which registers the rule
+ * of its {@link BaseLoadBalancer} as its {@link ServerLoadListener}. It can be configured for a named client
+ * through {@code NFLoadBalancerRuleClassName}.
+ */
+public class PeakEwmaRule extends AbstractLoadBalancerRule implements ServerLoadListener {
+
+    public static final Duration DEFAULT_DECAY_TIME = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_FAILURE_PENALTY = Duration.ofSeconds(1);
+
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final ConcurrentMap<String, ServerLoad> loads = new ConcurrentHashMap<>();
+
+    public PeakEwmaRule() {
+        this(DEFAULT_DECAY_TIME, DEFAULT_FAILURE_PENALTY);
+    }
+
+    /**
+     * @param decayTime      the time after which the weight of a latency sample drops to {@code 1/e}
+     * @param failurePenalty the least latency a failed call is accounted with
+     */
+    public PeakEwmaRule(Duration decayTime, Duration failurePenalty) {
+        checkNotNull(decayTime, "decayTime");
+        checkNotNull(failurePenalty, "failurePenalty");
+        checkArgument(!decayTime.isNegative() && !decayTime.isZero(), "decayTime must be positive");
+        checkArgument(!failurePenalty.isNegative(), "failurePenalty must not be negative");
+        this.decayNanos = decayTime.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+    }
+
+    @Override
+    public void initWithNiwsConfig(IClientConfig clientConfig) {
+        // configured through its constructor
+    }
+
+    @Override
+    public void setLoadBalancer(ILoadBalancer lb) {
+        super.setLoadBalancer(lb);
+        if (lb instanceof BaseLoadBalancer) {
+            // Forget the servers which left, a server which rejoins starts over.
+            ((BaseLoadBalancer) lb).addServerListChangeListener((oldList, newList) -> retain(newList));
+        }
+    }
+
+    @Override
+    public Server choose(Object key) {
+        ILoadBalancer lb = getLoadBalancer();
+        if (lb == null) {
+            return null;
+        }
+        List<Server> servers = lb.getReachableServers();
+        if (servers.isEmpty()) {
+            servers = lb.getAllServers();
+        }
+        int size = servers.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return servers.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        Server a = servers.get(first);
+        Server b = servers.get(second);
+        long now = System.nanoTime();
+        return load(b).cost(now) < load(a).cost(now) ? b : a;
+    }
+
+    @Override
+    public void callStarted(Server server) {
+        load(server).outstanding.incrementAndGet();
+    }
+
+    @Override
+    public void callEnded(Server server, long durationNanos, Throwable error) {
+        ServerLoad load = load(server);
+        load.outstanding.decrementAndGet();
+        load.observe(error != null ? Math.max(durationNanos, failurePenaltyNanos) : durationNanos, System.nanoTime());
+    }
+
+    @Override
+    public void callCancelled(Server server) {
+        load(server).outstanding.decrementAndGet();
+    }
+
+    /**
+     * @return the current cost of the given server, lower is preferred.
+     */
+    public double cost(Server server) {
+        return load(server).cost(System.nanoTime());
+    }
+
+    private ServerLoad load(Server server) {
+        ServerLoad load = loads.get(server.getId());
+        return load != null ? load : loads.computeIfAbsent(server.getId(), id -> new ServerLoad());
+    }
+
+    private void retain(List<Server> servers) {
+        Set<String> ids = new HashSet<>();
+        for (Server server : servers) {
+            ids.add(server.getId());
+        }
+        loads.keySet().retainAll(ids);
+    }
+
+    /**
+     * The outstanding calls and latency estimate of a single server.
+     */
+    private final class ServerLoad {
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicReference<Estimate> estimate = new AtomicReference<>(new Estimate(0, System.nanoTime()));
+
+        private void observe(long latencyNanos, long now) {
+            Estimate current;
+            Estimate next;
+            do {
+                current = estimate.get();
+                double latency;
+                if (latencyNanos > current.latency) {
+                    latency = latencyNanos;
+                } else {
+                    double weight = Math.exp(-Math.max(now - current.stamp, 0) / decayNanos);
+                    latency = current.latency * weight + latencyNanos * (1 - weight);
+                }
+                next = new Estimate(latency, now);
+            } while (!estimate.compareAndSet(current, next));
+        }
+
+        private double cost(long now) {
+            Estimate current = estimate.get();
+            int pending = Math.max(outstanding.get(), 0);
+            if (current.latency == 0) {
+                // Not measured yet, probe it unless calls to it are already in flight.
+                return pending == 0 ? 0 : failurePenaltyNanos + pending;
+            }
+            double latency = current.latency * Math.exp(-Math.max(now - current.stamp, 0) / decayNanos);
+            return latency * (pending + 1);
+        }
+    }
+
+    private static final class Estimate {
+        private final double latency;
+        private final long stamp;
+
+        private Estimate(double latency, long stamp) {
+            this.latency = latency;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -22,14 +22,18 @@ import com.netflix.client.RetryHandler;
 import com.netflix.client.config.CommonClientConfigKey;
 import com.netflix.client.config.IClientConfig;
 import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
 import feign.ReactiveClient;
+import feign.ReactiveInstrumentation;
 import feign.Request;
-import feign.RequestTemplate;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
-import java.net.URI;
 
 /**
  * Modified copy (01/01/2018) of {@link LBClient}.
@@ -39,6 +43,9 @@ public final class ReactiveLBClient extends AbstractReactiveLoadBalancerAwareCli
     private final int connectTimeout;
     private final int readTimeout;
     private final IClientConfig clientConfig;
+    private volatile ReactiveInstrumentation instrumentation = ReactiveInstrumentation.NOOP;
+    private volatile ReactiveInstrumentation.LoadBalancerRecorder recorder =
+            ReactiveInstrumentation.LoadBalancerRecorder.NOOP;
 
     public static ReactiveLBClient create(ILoadBalancer lb, IClientConfig clientConfig) {
         return new ReactiveLBClient(lb, clientConfig);
@@ -56,7 +63,9 @@ public final class ReactiveLBClient extends AbstractReactiveLoadBalancerAwareCli
     @Override
     public Mono<ClientResponse> executeReactive(RibbonRequest request, IClientConfig configOverride) throws IOException {
         Request.Options options;
-        if (configOverride != null) {
+        if (configOverride instanceof ReactiveRibbonClient.FeignOptionsClientConfig) {
+            options = ((ReactiveRibbonClient.FeignOptionsClientConfig) configOverride).options();
+        } else if (configOverride != null) {
             options =
                     new Request.Options(
                             configOverride.get(CommonClientConfigKey.ConnectTimeout, connectTimeout),
@@ -64,7 +73,7 @@ public final class ReactiveLBClient extends AbstractReactiveLoadBalancerAwareCli
         } else {
             options = new Request.Options(connectTimeout, readTimeout);
         }
-        return request.client().executeReactive(request.toRequest(), options);
+        return request.client().executeReactive(request.toRequest(), options, request.body());
     }
 
     @Override
@@ -73,39 +82,95 @@ public final class ReactiveLBClient extends AbstractReactiveLoadBalancerAwareCli
         if (clientConfig.get(CommonClientConfigKey.OkToRetryOnAllOperations, false)) {
             return new RequestSpecificRetryHandler(true, true, this.getRetryHandler(), requestConfig);
         }
-        if (!request.toRequest().method().equals("GET")) {
+        if (!request.method().equals("GET")) {
             return new RequestSpecificRetryHandler(true, false, this.getRetryHandler(), requestConfig);
         } else {
             return new RequestSpecificRetryHandler(true, true, this.getRetryHandler(), requestConfig);
         }
     }
 
+    /**
+     * Records the servers chosen for this client, see {@link ReactiveInstrumentation}.
+     */
+    public void setInstrumentation(ReactiveInstrumentation instrumentation) {
+        this.recorder = instrumentation.loadBalancerRecorder(clientConfig.getClientName());
+        this.instrumentation = instrumentation;
+    }
+
+    public ReactiveInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    @Override
+    protected void onServerChosen(Server server) {
+        recorder.serverChosen(server.getId());
+    }
+
+    @Override
+    protected RibbonRequest requestForServer(RibbonRequest request, Server server) {
+        return request.forServer(server);
+    }
+
+    @Override
+    protected boolean isHedgeable(RibbonRequest request) {
+        String method = request.method();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    /**
+     * Drains the body, so that the connection goes back to its pool.
+     */
+    @Override
+    protected void releaseResponse(ClientResponse response) {
+        response.body(BodyExtractors.toDataBuffers())
+                .doOnNext(DataBufferUtils::release)
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+
+    /**
+     * A request routed by a {@link ReactiveRibbonClient.Route}. Its URI is the one the load balancer chooses the server
+     * by; the request is rewritten once for every server it is sent to.
+     */
     static class RibbonRequest extends ClientRequest implements Cloneable {
 
         private final Request request;
+        private final ReactiveRibbonClient.Route route;
         private final ReactiveClient client;
+        private final BodyInserter<?, ? super ClientHttpRequest> body;
 
-        RibbonRequest(ReactiveClient client, Request request, URI uri) {
+        RibbonRequest(ReactiveClient client, Request request, ReactiveRibbonClient.Route route,
+                      BodyInserter<?, ? super ClientHttpRequest> body) {
             this.client = client;
             this.request = request;
-            setUri(uri);
+            this.route = route;
+            this.body = body;
+            setUri(route.loadBalancerUri());
+        }
+
+        RibbonRequest forServer(Server server) {
+            return new RibbonRequest(client, Request.create(request.method(), route.urlFor(server, request.url()),
+                    request.headers(), request.body(), request.charset()), route, body);
         }
 
         Request toRequest() {
-            return new RequestTemplate()
-                    .method(request.method())
-                    .append(getUri().toASCIIString())
-                    .headers(request.headers())
-                    .body(request.body(), request.charset())
-                    .request();
+            return request;
+        }
+
+        String method() {
+            return request.method();
         }
 
         ReactiveClient client() {
             return client;
         }
 
+        BodyInserter<?, ? super ClientHttpRequest> body() {
+            return body;
+        }
+
         public Object clone() {
-            return new RibbonRequest(client, request, getUri());
+            return new RibbonRequest(client, request, route, body);
         }
     }
 }
@@ -19,6 +19,14 @@ import com.netflix.client.ClientFactory;
 import com.netflix.client.config.IClientConfig;
 import com.netflix.loadbalancer.ILoadBalancer;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import static feign.Util.checkArgument;
+import static feign.Util.checkNotNull;
+
 /**
  * Modified copy (01/01/2018) of {@link LBClientFactory}.
  */
@@ -33,4 +41,86 @@ public interface ReactiveLBClientFactory {
             return ReactiveLBClient.create(lb, config);
         }
     }
+
+    /**
+     * Keeps one {@link ReactiveLBClient} per client name, created lazily by the delegate factory.
+     * Once more than {@code maxSize} names are registered, the oldest ones are evicted first.
+     */
+    final class Caching implements ReactiveLBClientFactory {
+        public static final int DEFAULT_MAX_SIZE = 256;
+
+        private final ReactiveLBClientFactory delegate;
+        private final int maxSize;
+        private final ConcurrentMap<String, ReactiveLBClient> clients = new ConcurrentHashMap<>();
+        private final Queue<String> creationOrder = new ConcurrentLinkedQueue<>();
+
+        public Caching(ReactiveLBClientFactory delegate) {
+            this(delegate, DEFAULT_MAX_SIZE);
+        }
+
+        public Caching(ReactiveLBClientFactory delegate, int maxSize) {
+            checkArgument(maxSize > 0, "maxSize must be positive but was %s", maxSize);
+            this.delegate = checkNotNull(delegate, "delegate");
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public ReactiveLBClient create(String clientName) {
+            ReactiveLBClient client = clients.get(clientName);
+            if (client != null) {
+                return client;
+            }
+
+            client = clients.computeIfAbsent(clientName, name -> {
+                creationOrder.offer(name);
+                return delegate.create(name);
+            });
+            evictOverflow();
+            return client;
+        }
+
+        /**
+         * Drops the cached client of the given name; the next {@link #create(String)} builds a new one.
+         */
+        public void evict(String clientName) {
+            if (clients.remove(clientName) != null) {
+                creationOrder.remove(clientName);
+            }
+        }
+
+        /**
+         * Replaces the cached client of the given name with a freshly created one.
+         */
+        public ReactiveLBClient refresh(String clientName) {
+            evict(clientName);
+            return create(clientName);
+        }
+
+        public void clear() {
+            clients.clear();
+            creationOrder.clear();
+        }
+
+        public int size() {
+            return clients.size();
+        }
+
+        ReactiveLBClientFactory delegate() {
+            return delegate;
+        }
+
+        int maxSize() {
+            return maxSize;
+        }
+
+        private void evictOverflow() {
+            while (clients.size() > maxSize) {
+                String eldest = creationOrder.poll();
+                if (eldest == null) {
+                    return;
+                }
+                clients.remove(eldest);
+            }
+        }
+    }
 }
@@ -16,25 +16,40 @@
 package feign.ribbon;
 
 import com.netflix.client.ClientException;
+import com.netflix.client.HedgePolicy;
 import com.netflix.client.config.CommonClientConfigKey;
 import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.client.config.IClientConfigKey;
+import com.netflix.loadbalancer.Server;
 import feign.ReactiveClient;
+import feign.ReactiveInstrumentation;
 import feign.Request;
 import feign.Response;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.codec.ClientCodecConfigurer;
+import org.springframework.web.reactive.function.BodyInserter;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 /**
  * Some methods on this class were copied (01/01/2018) from {@link RibbonClient}
  */
 public class ReactiveRibbonClient implements ReactiveClient {
 
+    private static final int MAX_CACHED_ROUTES = 256;
+    private static final int MAX_CACHED_CLIENT_CONFIGS = 64;
+
     private final ReactiveClient delegate;
     private final ReactiveLBClientFactory reactiveLbClientFactory;
-
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Request.Options, FeignOptionsClientConfig> clientConfigs = new ConcurrentHashMap<>();
+    private volatile Route lastRoute;
 
     public static ReactiveRibbonClient create() {
         return builder().build();
@@ -56,36 +71,166 @@ public class ReactiveRibbonClient implements ReactiveClient {
 
     @Override
     public Mono<ClientResponse> executeReactive(Request request, Request.Options options) throws IOException {
+        return executeReactive(request, options, null);
+    }
+
+    @Override
+    public Mono<ClientResponse> executeReactive(Request request, Request.Options options,
+                                                BodyInserter<?, ? super ClientHttpRequest> body) throws IOException {
         try {
-            URI asUri = URI.create(request.url());
-            String clientName = asUri.getHost();
-            URI uriWithoutHost = cleanUrl(request.url(), clientName);
+            Route route = route(request.url());
             ReactiveLBClient.RibbonRequest ribbonRequest =
-                    new ReactiveLBClient.RibbonRequest(delegate, request, uriWithoutHost);
+                    new ReactiveLBClient.RibbonRequest(delegate, request, route, body);
 
-            return lbClient(clientName).executeWithLoadBalancer(ribbonRequest,
-                    new FeignOptionsClientConfig(options));
+            return reactiveLbClientFactory.create(route.clientName()).executeWithLoadBalancer(ribbonRequest, clientConfig(options));
         } catch (ClientException e) {
             return Mono.error(e);
         }
 
     }
 
+    /**
+     * @return the route of the target the given url belongs to, parsed once per target.
+     */
+    Route route(String url) {
+        Route route = lastRoute;
+        if (route != null && route.matches(url)) {
+            return route;
+        }
+        String prefix = url.substring(0, Route.authorityEnd(url));
+        route = routes.get(prefix);
+        if (route == null) {
+            route = Route.parse(prefix);
+            if (routes.size() < MAX_CACHED_ROUTES) {
+                Route cached = routes.putIfAbsent(prefix, route);
+                route = cached != null ? cached : route;
+            }
+        }
+        lastRoute = route;
+        return route;
+    }
 
-    static URI cleanUrl(String originalUrl, String host) {
-        return URI.create(originalUrl.replaceFirst(host, ""));
+    private FeignOptionsClientConfig clientConfig(Request.Options options) {
+        FeignOptionsClientConfig config = clientConfigs.get(options);
+        if (config != null) {
+            return config;
+        }
+        config = new FeignOptionsClientConfig(options);
+        if (clientConfigs.size() < MAX_CACHED_CLIENT_CONFIGS) {
+            FeignOptionsClientConfig cached = clientConfigs.putIfAbsent(options, config);
+            return cached != null ? cached : config;
+        }
+        return config;
     }
 
-    private ReactiveLBClient lbClient(String clientName) {
-        return reactiveLbClientFactory.create(clientName);
+
+    /**
+     * The client name of a target and the parts of its url around it. A url like {@code http://name:8080/path} is
+     * routed by the client name {@code name}, and {@code /path} is appended to the server chosen for it. The port of
+     * the target, if any, is ignored.
+     */
+    static final class Route {
+        private final String prefix;
+        private final String scheme;
+        private final String clientName;
+        private final URI loadBalancerUri;
+
+        private Route(String prefix, String scheme, String clientName) {
+            this.prefix = prefix;
+            this.scheme = scheme;
+            this.clientName = clientName;
+            // Without a host, the load balancer chooses the server by itself.
+            this.loadBalancerUri = URI.create(scheme + ":///");
+        }
+
+        /**
+         * @param prefix the scheme and authority of a url
+         */
+        static Route parse(String prefix) {
+            int schemeEnd = prefix.indexOf("://");
+            if (schemeEnd <= 0) {
+                throw new IllegalArgumentException("Url " + prefix + " has no scheme");
+            }
+            int hostStart = schemeEnd + 3;
+            int hostEnd = prefix.indexOf(':', hostStart);
+            if (hostEnd < 0) {
+                hostEnd = prefix.length();
+            }
+            if (hostEnd == hostStart) {
+                throw new IllegalArgumentException("Url " + prefix + " has no client name");
+            }
+            return new Route(prefix, prefix.substring(0, schemeEnd), prefix.substring(hostStart, hostEnd));
+        }
+
+        static int authorityEnd(String url) {
+            int schemeEnd = url.indexOf("://");
+            for (int i = schemeEnd < 0 ? 0 : schemeEnd + 3; i < url.length(); i++) {
+                char c = url.charAt(i);
+                if (c == '/' || c == '?' || c == '#') {
+                    return i;
+                }
+            }
+            return url.length();
+        }
+
+        boolean matches(String url) {
+            if (!url.startsWith(prefix)) {
+                return false;
+            }
+            if (url.length() == prefix.length()) {
+                return true;
+            }
+            char next = url.charAt(prefix.length());
+            return next == '/' || next == '?' || next == '#';
+        }
+
+        String urlFor(Server server, String url) {
+            return new StringBuilder(url.length() + 16)
+                    .append(scheme).append("://")
+                    .append(server.getHost()).append(':').append(server.getPort())
+                    .append(url, prefix.length(), url.length())
+                    .toString();
+        }
+
+        String prefix() {
+            return prefix;
+        }
+
+        String clientName() {
+            return clientName;
+        }
+
+        URI loadBalancerUri() {
+            return loadBalancerUri;
+        }
     }
 
+    /**
+     * Request specific timeouts for the load balancer, built once per {@link Request.Options} and shared by its calls,
+     * so it can't be modified.
+     */
+    static final class FeignOptionsClientConfig extends DefaultClientConfigImpl {
 
-    static class FeignOptionsClientConfig extends DefaultClientConfigImpl {
+        private final Request.Options options;
+        private final boolean initialized;
 
-        public FeignOptionsClientConfig(Request.Options options) {
+        FeignOptionsClientConfig(Request.Options options) {
             setProperty(CommonClientConfigKey.ConnectTimeout, options.connectTimeoutMillis());
             setProperty(CommonClientConfigKey.ReadTimeout, options.readTimeoutMillis());
+            this.options = options;
+            this.initialized = true;
+        }
+
+        Request.Options options() {
+            return options;
+        }
+
+        @Override
+        public void setProperty(IClientConfigKey key, Object value) {
+            if (initialized) {
+                throw new UnsupportedOperationException("The request config is shared and can't be modified");
+            }
+            super.setProperty(key, value);
         }
 
         @Override
@@ -107,22 +252,89 @@ public class ReactiveRibbonClient implements ReactiveClient {
 
         private ReactiveClient delegate;
         private ReactiveLBClientFactory reactiveLbClientFactory;
+        private HedgePolicy hedgePolicy;
+        private ReactiveInstrumentation instrumentation = ReactiveInstrumentation.NOOP;
+        private Consumer<ClientCodecConfigurer> codecs;
 
         public Builder delegate(ReactiveClient delegate) {
             this.delegate = delegate;
             return this;
         }
 
+        /**
+         * Configures the codecs of the default delegate, see {@link ReactiveClient.Default.Builder#codecs}.
+         */
+        public Builder codecs(Consumer<ClientCodecConfigurer> codecs) {
+            this.codecs = codecs;
+            return this;
+        }
+
+        /**
+         * The factory of the load balancer clients, cached by client name unless it is a
+         * {@link ReactiveLBClientFactory.Caching} already. When a hedge policy or instrumentation is configured, the
+         * delegate of a given {@code Caching} factory is cached anew, so the clients it shares are never reconfigured.
+         */
         public Builder reactiveLbClientFactory(ReactiveLBClientFactory reactiveLbClientFactory) {
             this.reactiveLbClientFactory = reactiveLbClientFactory;
             return this;
         }
 
+        /**
+         * Hedges GET and HEAD requests according to the given policy, disabled by default.
+         */
+        public Builder hedgePolicy(HedgePolicy hedgePolicy) {
+            this.hedgePolicy = hedgePolicy;
+            return this;
+        }
+
+        /**
+         * Records the servers chosen by the load balancer, see {@link ReactiveInstrumentation}.
+         */
+        public Builder instrumentation(ReactiveInstrumentation instrumentation) {
+            this.instrumentation = instrumentation;
+            return this;
+        }
+
         public ReactiveRibbonClient build() {
+            if (delegate != null && codecs != null) {
+                throw new IllegalStateException(
+                        "Codecs can't be applied to a given delegate, configure them on the delegate instead");
+            }
+            ReactiveLBClientFactory factory = reactiveLbClientFactory != null
+                    ? reactiveLbClientFactory
+                    : new ReactiveLBClientFactory.Default();
+            ReactiveInstrumentation instrumentation =
+                    this.instrumentation != null ? this.instrumentation : ReactiveInstrumentation.NOOP;
+            if (hedgePolicy != null || instrumentation != ReactiveInstrumentation.NOOP) {
+                int maxSize = ReactiveLBClientFactory.Caching.DEFAULT_MAX_SIZE;
+                if (factory instanceof ReactiveLBClientFactory.Caching) {
+                    maxSize = ((ReactiveLBClientFactory.Caching) factory).maxSize();
+                    factory = ((ReactiveLBClientFactory.Caching) factory).delegate();
+                }
+                factory = new ReactiveLBClientFactory.Caching(configuring(factory, hedgePolicy, instrumentation),
+                        maxSize);
+            } else if (!(factory instanceof ReactiveLBClientFactory.Caching)) {
+                factory = new ReactiveLBClientFactory.Caching(factory);
+            }
             return new ReactiveRibbonClient(
-                    delegate != null ? delegate : new Default(),
-                    reactiveLbClientFactory != null ? reactiveLbClientFactory : new ReactiveLBClientFactory.Default()
-            );
+                    delegate != null ? delegate : ReactiveClient.Default.builder().codecs(codecs).build(),
+                    factory);
+        }
+
+        /**
+         * Configures every load balancer client once, when it is created, as it may be used concurrently afterwards.
+         * Every client keeps its own latency window and hedge budget.
+         */
+        private static ReactiveLBClientFactory configuring(ReactiveLBClientFactory delegate, HedgePolicy hedgePolicy,
+                                                           ReactiveInstrumentation instrumentation) {
+            return clientName -> {
+                ReactiveLBClient client = delegate.create(clientName);
+                if (hedgePolicy != null) {
+                    client.setHedgePolicy(hedgePolicy);
+                }
+                client.setInstrumentation(instrumentation);
+                return client;
+            };
         }
     }
 }
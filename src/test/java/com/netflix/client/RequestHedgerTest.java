@@ -0,0 +1,49 @@
+package com.netflix.client;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+
+public class RequestHedgerTest {
+
+    @Test
+    public void budgetLimitsHedgesTest() {
+        RequestHedger hedger = new RequestHedger(HedgePolicy.builder()
+                .delay(Duration.ofMillis(50))
+                .maxHedgeRatio(0.5, 1)
+                .build());
+
+        hedger.onRequest();
+        Assert.assertTrue(hedger.tryHedge());
+        Assert.assertFalse(hedger.tryHedge());
+
+        hedger.onRequest();
+        hedger.onRequest();
+        Assert.assertTrue(hedger.tryHedge());
+        hedger.onHedgeWin();
+
+        Assert.assertEquals(3, hedger.getRequestCount());
+        Assert.assertEquals(2, hedger.getHedgeCount());
+        Assert.assertEquals(2.0 / 3, hedger.getHedgeRate(), 0.001);
+        Assert.assertEquals(0.5, hedger.getWinRate(), 0.001);
+    }
+
+    @Test
+    public void percentileDelayTest() {
+        RequestHedger hedger = new RequestHedger(HedgePolicy.builder()
+                .delay(Duration.ofMillis(500))
+                .percentile(0.9)
+                .windowSize(100)
+                .build());
+
+        for (int i = 1; i < 100; i++) {
+            hedger.recordLatency(i);
+        }
+        // The initial delay is used until the window is full.
+        Assert.assertEquals(500, hedger.getDelayMillis());
+
+        hedger.recordLatency(100);
+        Assert.assertEquals(90, hedger.getDelayMillis());
+    }
+}
@@ -0,0 +1,166 @@
+package feign;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CircuitBreakerTest {
+
+    private static final AtomicBoolean failing = new AtomicBoolean();
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static NettyContext server;
+
+    private final AtomicInteger fallbackCalls = new AtomicInteger();
+    private final ItemApi fallback = () -> {
+        fallbackCalls.incrementAndGet();
+        return Mono.just("fallback");
+    };
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("test", CircuitBreakerPolicy.builder()
+            .window(CircuitBreakerPolicy.WindowType.COUNT, 4)
+            .minimumCalls(4)
+            .failureRateThreshold(0.5)
+            .waitInOpenState(Duration.ofMillis(100))
+            .halfOpenCalls(1)
+            .build());
+
+    interface ItemApi {
+        @RequestLine("GET /item")
+        Mono<String> item();
+    }
+
+    @BeforeClass
+    public static void startServer() {
+        server = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> {
+                    requests.incrementAndGet();
+                    return failing.get()
+                            ? response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send()
+                            : response.sendString(Mono.just("target"));
+                })
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.dispose();
+    }
+
+    @Before
+    public void reset() {
+        failing.set(false);
+        requests.set(0);
+    }
+
+    @Test
+    public void opensAndClosesAfterProbeTest() throws Exception {
+        succeed();
+        fail();
+        succeed();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+
+        fail();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        try {
+            circuitBreaker.protect(Mono.empty()).block();
+            Assert.fail();
+        } catch (CircuitBreakerOpenException e) {
+            // expected
+        }
+
+        Thread.sleep(150);
+        succeed();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+
+    @Test
+    public void failedProbeReopensTest() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            fail();
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+
+        Thread.sleep(150);
+        fail();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+    }
+
+    @Test
+    public void fallbackOfTargetTest() throws Exception {
+        assertFallbackWhileOpen(builder().target(ItemApi.class, url(), fallback));
+    }
+
+    @Test
+    public void fallbackOfNewInstanceTest() throws Exception {
+        assertFallbackWhileOpen(builder().build()
+                .newInstance(new Target.HardCodedTarget<>(ItemApi.class, url()), fallback));
+    }
+
+    private void assertFallbackWhileOpen(ItemApi api) throws Exception {
+        Assert.assertEquals("target", api.item().block());
+
+        failing.set(true);
+        for (int i = 0; i < 2; i++) {
+            try {
+                api.item().block();
+                Assert.fail();
+            } catch (RuntimeException e) {
+                // expected, the failures open the circuit breaker
+            }
+        }
+        Assert.assertEquals(3, requests.get());
+        Assert.assertEquals(0, fallbackCalls.get());
+
+        failing.set(false);
+        Assert.assertEquals("fallback", api.item().block());
+        Assert.assertEquals(3, requests.get());
+        Assert.assertEquals(1, fallbackCalls.get());
+
+        // The probe after the wait succeeds and closes the circuit breaker again.
+        Thread.sleep(150);
+        Assert.assertEquals("target", api.item().block());
+        Assert.assertEquals("target", api.item().block());
+        Assert.assertEquals(5, requests.get());
+        Assert.assertEquals(1, fallbackCalls.get());
+    }
+
+    private static ReactiveFeign.Builder builder() {
+        return ReactiveFeign.builder()
+                .circuitBreaker(CircuitBreakerPolicy.builder()
+                        .window(CircuitBreakerPolicy.WindowType.COUNT, 4)
+                        .minimumCalls(3)
+                        .failureRateThreshold(0.5)
+                        .waitInOpenState(Duration.ofMillis(100))
+                        .halfOpenCalls(1)
+                        .build());
+    }
+
+    private static String url() {
+        return "http://127.0.0.1:" + server.address().getPort();
+    }
+
+    private void succeed() {
+        circuitBreaker.protect(Mono.<ClientResponse>empty()).block();
+    }
+
+    private void fail() {
+        try {
+            circuitBreaker.protect(Mono.error(new IOException("failure"))).block();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+}
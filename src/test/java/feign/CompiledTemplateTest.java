@@ -0,0 +1,96 @@
+package feign;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled templates must build the same requests as resolving the method's template.
+ */
+public class CompiledTemplateTest {
+
+    interface Api {
+        @RequestLine("GET /items/{id}/{id}?sort={sort}&fixed=a%20b&tags={tags}&raw={a}{b}")
+        @Headers({"X-Trace: {trace}", "X-Both: {trace}-{sort}", "X-Fixed: fixed"})
+        void find(@Param("id") String id, @Param("sort") String sort, @Param("trace") String trace,
+                  @Param("tags") Collection<String> tags, @Param("a") String a);
+
+        @RequestLine(value = "GET /files/{path}+{missing}", decodeSlash = false)
+        @Headers("X-Path: {path}")
+        void file(@Param("path") String path);
+
+        @RequestLine("GET /counts/{count}?count={count}")
+        void count(@Param(value = "count", expander = Doubling.class) int count);
+
+        @RequestLine("GET /search/{term}?page={page}")
+        void search(@Param("term") String term, @Param("page") Integer page,
+                    @QueryMap Map<String, Object> query, @HeaderMap Map<String, Object> headers);
+    }
+
+    public static class Doubling implements Param.Expander {
+        @Override
+        public String expand(Object value) {
+            return String.valueOf((Integer) value * 2);
+        }
+    }
+
+    @Test
+    public void rendersLikeResolveTest() {
+        assertSameRequest("find", "item 42", "name,asc", "7f3a", Arrays.asList("x", "y z"), "a");
+        assertSameRequest("find", "a/b+c", null, null, null, null);
+        assertSameRequest("find", "\u00e9t\u00e9", "", "a b", Arrays.asList(), "{b}");
+        assertSameRequest("file", "dir/file name+1");
+        assertSameRequest("file", new Object[]{null});
+        assertSameRequest("count", 21);
+
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("page", 2);
+        query.put("fields", Arrays.asList("id", "name"));
+        query.put("empty", null);
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("X-Tenant", "acme");
+        headers.put("X-Many", Arrays.asList("a", "b"));
+        assertSameRequest("search", "a%b", 1, query, headers);
+    }
+
+    @Test
+    public void compilesOnlyWhatItRendersLikeResolveTest() {
+        Assert.assertNotNull(compile("GET /items/{id}?q={q}"));
+        Assert.assertNull(compile("GET /items/{{id}"));
+        Assert.assertNull(compile("GET /items/{id"));
+        Assert.assertNull(compile("GET /items/a%2{id}"));
+        Assert.assertNull(compile("GET /items?flag"));
+    }
+
+    @Test
+    public void urlEncodeTest() {
+        String plain = "Abc-1.2_*";
+        Assert.assertSame(plain, CompiledTemplate.urlEncode(plain));
+        Assert.assertEquals("a+b%2Fc%C3%A9", CompiledTemplate.urlEncode("a b/c\u00e9"));
+    }
+
+    private static CompiledTemplate compile(String requestLine) {
+        RequestTemplate template = new RequestTemplate().method("GET").append(requestLine.substring(4));
+        return CompiledTemplate.compile(template, new int[0], new String[0][], new Param.Expander[0]);
+    }
+
+    private static void assertSameRequest(String method, Object... args) {
+        MethodMetadata metadata = null;
+        for (MethodMetadata md : new Contract.Default().parseAndValidatateMetadata(Api.class)) {
+            if (md.configKey().startsWith("Api#" + method + "(")) {
+                metadata = md;
+            }
+        }
+
+        BuildTemplateByResolvingArgs buildTemplate = new BuildTemplateByResolvingArgs(metadata);
+        RequestTemplate resolved = new BuildTemplateByResolvingArgs.BuildFormEncodedTemplateFromArgs(metadata,
+                (object, bodyType, template) -> {
+                }).create(args);
+
+        Assert.assertEquals(resolved.request().toString(), buildTemplate.create(args).request().toString());
+    }
+}
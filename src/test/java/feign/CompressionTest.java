@@ -0,0 +1,161 @@
+package feign;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionTest {
+
+    private static final String ITEMS = "[\"a\",\"b\",\"c\"]";
+
+    private static final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+    private static final AtomicReference<String> contentEncoding = new AtomicReference<>();
+    private static NettyContext server;
+
+    interface CompressedApi {
+        @RequestLine("GET /items")
+        Mono<List<String>> items();
+
+        @RequestLine("GET /deflated")
+        Mono<List<String>> deflated();
+
+        @Headers("Content-Type: application/json")
+        @RequestLine("POST /echo")
+        Mono<String> echo(List<String> items);
+    }
+
+    @BeforeClass
+    public static void startServer() {
+        server = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> {
+                    acceptEncoding.set(request.requestHeaders().get("Accept-Encoding"));
+                    contentEncoding.set(request.requestHeaders().get("Content-Encoding"));
+                    if (request.uri().startsWith("/echo")) {
+                        return response.header("Content-Type", "text/plain")
+                                .sendByteArray(request.receive().aggregate().asByteArray()
+                                        .map(body -> "gzip".equals(contentEncoding.get()) ? gunzip(body) : body));
+                    }
+                    response.header("Content-Type", "application/json");
+                    String accepted = acceptEncoding.get();
+                    if (request.uri().startsWith("/deflated") && accepted != null && accepted.contains("deflate")) {
+                        return response.header("Content-Encoding", "deflate")
+                                .sendByteArray(Mono.just(deflate(ITEMS.getBytes(StandardCharsets.UTF_8))));
+                    }
+                    if (accepted != null && accepted.contains("gzip")) {
+                        return response.header("Content-Encoding", "gzip")
+                                .sendByteArray(Mono.just(gzip(ITEMS.getBytes(StandardCharsets.UTF_8))));
+                    }
+                    return response.sendString(Mono.just(ITEMS));
+                })
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.dispose();
+    }
+
+    @Before
+    public void reset() {
+        acceptEncoding.set(null);
+        contentEncoding.set(null);
+    }
+
+    private static CompressedApi api(ReactiveFeign.Builder builder) {
+        return builder.target(CompressedApi.class, "http://127.0.0.1:" + server.address().getPort());
+    }
+
+    @Test
+    public void responseCompressionTest() {
+        CompressedApi api = api(ReactiveFeign.builder().compression(true));
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), api.items().block());
+        Assert.assertEquals("gzip, deflate", acceptEncoding.get());
+    }
+
+    @Test
+    public void deflatedResponseTest() {
+        CompressedApi api = api(ReactiveFeign.builder().compression(true));
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), api.deflated().block());
+    }
+
+    @Test
+    public void noCompressionByDefaultTest() {
+        CompressedApi api = api(ReactiveFeign.builder());
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), api.items().block());
+        Assert.assertNull(acceptEncoding.get());
+    }
+
+    @Test
+    public void requestCompressionTest() {
+        CompressedApi api = api(ReactiveFeign.builder().requestCompressionThreshold(64));
+
+        List<String> large = Collections.nCopies(100, "item");
+        Assert.assertEquals(large.size(), api.echo(large).block().split(",").length);
+        Assert.assertEquals("gzip", contentEncoding.get());
+
+        Assert.assertEquals("[\"item\"]", api.echo(Collections.singletonList("item")).block());
+        Assert.assertNull(contentEncoding.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void compressionWithGivenClientTest() {
+        ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .compression(true)
+                .build();
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] content) {
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            byte[] buffer = new byte[4096];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                inflated.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return inflated.toByteArray();
+    }
+}
@@ -0,0 +1,73 @@
+package feign;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ConcurrencyLimitingClientTest {
+
+    private final List<MonoProcessor<ClientResponse>> exchanges = new ArrayList<>();
+
+    private final ReactiveClient pendingClient = new ReactiveClient() {
+        @Override
+        public Mono<ClientResponse> executeReactive(Request request, Request.Options options) {
+            MonoProcessor<ClientResponse> exchange = MonoProcessor.create();
+            exchanges.add(exchange);
+            return exchange;
+        }
+
+        @Override
+        public Response execute(Request request, Request.Options options) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Test
+    public void rejectsOverLimitTest() throws Exception {
+        ConcurrencyLimitingClient client = ConcurrencyLimitingClient.builder(pendingClient)
+                .limit(2, 1, 10)
+                .build();
+
+        client.executeReactive(request("http://service:8080/a"), new Request.Options()).subscribe();
+        client.executeReactive(request("http://service:8081/b"), new Request.Options()).subscribe();
+        Assert.assertEquals(2, client.inFlight("service"));
+
+        try {
+            client.executeReactive(request("http://service/c"), new Request.Options()).block();
+            Assert.fail();
+        } catch (ConcurrencyLimitExceededException e) {
+            // expected
+        }
+
+        exchanges.get(0).onComplete();
+        Assert.assertEquals(1, client.inFlight("service"));
+    }
+
+    @Test
+    public void queuedRequestWaitsForPermitTest() throws Exception {
+        ConcurrencyLimitingClient client = ConcurrencyLimitingClient.builder(pendingClient)
+                .limit(1, 1, 10)
+                .queue(1, Duration.ofSeconds(5))
+                .perServer(true)
+                .build();
+
+        client.executeReactive(request("http://service:8080/a"), new Request.Options()).subscribe();
+        client.executeReactive(request("http://service:8080/b"), new Request.Options()).subscribe();
+        Assert.assertEquals(1, exchanges.size());
+
+        exchanges.get(0).onComplete();
+        Assert.assertEquals(2, exchanges.size());
+        Assert.assertEquals(1, client.inFlight("service:8080"));
+    }
+
+    private static Request request(String url) {
+        return Request.create("GET", url, Collections.emptyMap(), null, null);
+    }
+}
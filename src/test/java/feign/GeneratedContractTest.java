@@ -0,0 +1,98 @@
+package feign;
+
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GeneratedContractTest {
+
+    @ReactiveFeignClient
+    @Headers("Accept: application/json")
+    interface ContractApi {
+        @RequestLine("GET /items/{id}?sort={sort}")
+        @Headers("X-Trace: {trace}")
+        Mono<List<Map<String, Integer>>> find(@Param("id") String id,
+                                              @Param(value = "sort", expander = UpperCase.class) String sort,
+                                              @Param("trace") String trace,
+                                              @QueryMap Map<String, Object> query,
+                                              @HeaderMap Map<String, Object> headers);
+
+        @RequestLine("POST /items HTTP/1.1")
+        Flux<String[]> create(Flux<Map<String, ? extends Number>> items);
+
+        @RequestLine("POST /form")
+        @Body("name={name}")
+        Mono<Void> form(@Param("name") String name, @Param("other") String other);
+
+        @RequestLine("GET")
+        Mono<List<String>[]> dynamic(URI uri, int[] body);
+    }
+
+    @ReactiveFeignClient
+    interface GenericApi {
+        @RequestLine("GET /")
+        <T> Mono<T> get();
+    }
+
+    public static class UpperCase implements Param.Expander {
+        @Override
+        public String expand(Object value) {
+            return value.toString().toUpperCase();
+        }
+    }
+
+    @Test
+    public void generatedContractTest() {
+        List<MethodMetadata> generated = GeneratedImplementations.metadata(new Contract.Default(), ContractApi.class);
+        Map<String, MethodMetadata> parsed = new HashMap<>();
+        for (MethodMetadata metadata : new Contract.Default().parseAndValidatateMetadata(ContractApi.class)) {
+            parsed.put(metadata.configKey(), metadata);
+        }
+
+        Assert.assertEquals(parsed.size(), generated.size());
+        for (MethodMetadata actual : generated) {
+            MethodMetadata expected = parsed.get(actual.configKey());
+            Assert.assertNotNull(actual.configKey(), expected);
+            Assert.assertEquals(expected.returnType(), actual.returnType());
+            Assert.assertEquals(expected.returnType().hashCode(), actual.returnType().hashCode());
+            Assert.assertEquals(expected.template().method(), actual.template().method());
+            Assert.assertEquals(expected.template().url(), actual.template().url());
+            Assert.assertEquals(expected.template().queries(), actual.template().queries());
+            Assert.assertEquals(expected.template().headers(), actual.template().headers());
+            Assert.assertEquals(expected.template().bodyTemplate(), actual.template().bodyTemplate());
+            Assert.assertEquals(expected.indexToName(), actual.indexToName());
+            Assert.assertEquals(expected.indexToExpanderClass(), actual.indexToExpanderClass());
+            Assert.assertEquals(expected.formParams(), actual.formParams());
+            Assert.assertEquals(expected.urlIndex(), actual.urlIndex());
+            Assert.assertEquals(expected.bodyIndex(), actual.bodyIndex());
+            Assert.assertEquals(expected.bodyType(), actual.bodyType());
+            Assert.assertEquals(expected.queryMapIndex(), actual.queryMapIndex());
+            Assert.assertEquals(expected.headerMapIndex(), actual.headerMapIndex());
+        }
+    }
+
+    @Test
+    public void expandersAreCreatedByTheGeneratedContract() {
+        for (MethodMetadata metadata : GeneratedImplementations.metadata(new Contract.Default(), ContractApi.class)) {
+            if (metadata.configKey().startsWith("ContractApi#find(")) {
+                Assert.assertTrue(metadata.indexToExpander().get(1) instanceof UpperCase);
+            }
+        }
+    }
+
+    @Test
+    public void methodTypeVariablesAreParsedAtRuntime() throws Exception {
+        try {
+            Class.forName(GenericApi.class.getName().replace('$', '_') + GeneratedImplementations.CONTRACT_SUFFIX);
+            Assert.fail();
+        } catch (ClassNotFoundException expected) {
+        }
+        Assert.assertEquals(1, GeneratedImplementations.metadata(new Contract.Default(), GenericApi.class).size());
+    }
+}
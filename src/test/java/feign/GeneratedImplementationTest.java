@@ -0,0 +1,66 @@
+package feign;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+public class GeneratedImplementationTest {
+
+    private static NettyContext server;
+
+    @ReactiveFeignClient
+    interface GeneratedApi {
+        @RequestLine("GET /echo/{value}")
+        Mono<String> echo(@Param("value") String value);
+
+        @RequestLine("GET /letters/{value}")
+        Flux<String> letters(@Param("value") String value);
+
+        default Mono<String> echoTwice(String value) {
+            return echo(value).concatWith(echo(value)).reduce(String::concat);
+        }
+    }
+
+    @BeforeClass
+    public static void startServer() {
+        server = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> {
+                    String value = request.uri().substring(request.uri().lastIndexOf('/') + 1);
+                    if (request.uri().startsWith("/letters")) {
+                        // One event per letter, a JSON array of strings would be decoded as a single string.
+                        return response.header("Content-Type", "text/event-stream")
+                                .sendString(Flux.fromArray(value.split("")).map(letter -> "data:" + letter + "\n\n"));
+                    }
+                    return response.header("Content-Type", "text/plain").sendString(Mono.just(value));
+                })
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.dispose();
+    }
+
+    @Test
+    public void generatedImplementationTest() {
+        Target<GeneratedApi> target = new Target.HardCodedTarget<>(GeneratedApi.class,
+                "http://127.0.0.1:" + server.address().getPort());
+        GeneratedApi api = ReactiveFeign.builder().target(target);
+
+        Assert.assertFalse(Proxy.isProxyClass(api.getClass()));
+        Assert.assertEquals(GeneratedImplementations.implementationName(GeneratedApi.class), api.getClass().getName());
+        Assert.assertEquals("value", api.echo("value").block());
+        Assert.assertEquals("valuevalue", api.echoTwice("value").block());
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), api.letters("abc").collectList().block());
+        Assert.assertEquals(ReactiveFeign.builder().target(target), api);
+        Assert.assertEquals(target.toString(), api.toString());
+    }
+}
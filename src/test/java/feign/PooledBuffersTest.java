@@ -0,0 +1,77 @@
+package feign;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class PooledBuffersTest {
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+
+    @Test
+    public void copiesAndReleasesTest() {
+        NettyDataBuffer first = buffer("ab");
+        NettyDataBuffer second = buffer("c");
+        PooledBuffers buffers = new PooledBuffers();
+        buffers.add(first);
+        buffers.add(second);
+
+        Assert.assertEquals(3, buffers.size());
+        Assert.assertEquals("abc", new String(buffers.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals(1, first.getNativeBuffer().refCnt());
+
+        buffers.release();
+        Assert.assertEquals(0, first.getNativeBuffer().refCnt());
+        Assert.assertEquals(0, second.getNativeBuffer().refCnt());
+    }
+
+    @Test
+    public void bufferAddedAfterReleaseIsReleasedTest() {
+        NettyDataBuffer late = buffer("late");
+        PooledBuffers buffers = new PooledBuffers();
+        buffers.release();
+
+        buffers.add(late);
+        Assert.assertEquals(0, late.getNativeBuffer().refCnt());
+        Assert.assertNull(buffers.toByteArray());
+    }
+
+    @Test
+    public void takenBuffersAreNotReleasedTest() {
+        NettyDataBuffer taken = buffer("taken");
+        PooledBuffers buffers = new PooledBuffers();
+        buffers.add(taken);
+
+        List<DataBuffer> owned = buffers.take();
+        buffers.release();
+        Assert.assertEquals(1, taken.getNativeBuffer().refCnt());
+        Assert.assertSame(taken, owned.get(0));
+        taken.release();
+    }
+
+    @Test
+    public void cancelledBodyIsReleasedTest() {
+        NettyDataBuffer received = buffer("partial");
+        Mono<byte[]> body = Mono.using(PooledBuffers::new,
+                buffers -> Flux.<DataBuffer>just(received).concatWith(Flux.never())
+                        .doOnNext(buffers::add)
+                        .then(Mono.fromSupplier(buffers::toByteArray)),
+                PooledBuffers::release);
+
+        body.subscribe().dispose();
+        Assert.assertEquals(0, received.getNativeBuffer().refCnt());
+    }
+
+    private NettyDataBuffer buffer(String content) {
+        return bufferFactory.wrap(UnpooledByteBufAllocator.DEFAULT.buffer().writeBytes(
+                content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
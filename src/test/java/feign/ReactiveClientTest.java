@@ -0,0 +1,191 @@
+package feign;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+public class ReactiveClientTest {
+
+    private static NettyContext server;
+    private static NettyContext otherServer;
+
+    @BeforeClass
+    public static void startServers() {
+        server = startServer();
+        otherServer = startServer();
+    }
+
+    /**
+     * Answers with the client port of the connection, after the delay given by the {@code delay} query parameter.
+     */
+    private static NettyContext startServer() {
+        return HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> {
+                    int delay = request.uri().indexOf("delay=");
+                    return Mono.delay(Duration.ofMillis(delay < 0 ? 0 : Long.parseLong(request.uri().substring(delay + 6))))
+                            .then(response.sendString(Mono.just(String.valueOf(request.remoteAddress().getPort())))
+                                    .then());
+                })
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServers() {
+        server.dispose();
+        otherServer.dispose();
+    }
+
+    @Test
+    public void readTimeoutTest() throws Exception {
+        ReactiveClient.Default client = ReactiveClient.Default.builder().build();
+        try {
+            call(client, server, "/?delay=500", new Request.Options(1000, 100)).block();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(Exceptions.unwrap(e) instanceof SocketTimeoutException);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void optionsHaveTheirOwnTimeoutsTest() throws Exception {
+        ReactiveClient.Default client = ReactiveClient.Default.builder().build();
+        try {
+            call(client, server, "/?delay=300", new Request.Options(1000, 100))
+                    .onErrorResume(SocketTimeoutException.class, e -> Mono.empty())
+                    .block();
+            Assert.assertNotNull(call(client, server, "/?delay=300", new Request.Options(1000, 1000)).block());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void pendingAcquiresAreLimitedPerAddressTest() throws Exception {
+        ReactiveClient.Default client = ReactiveClient.Default.builder()
+                .maxConnections(1)
+                .maxPendingAcquires(0)
+                .build();
+        try {
+            CompletableFuture<String> slow = call(client, server, "/?delay=300").toFuture();
+            try {
+                call(client, server, "/").block();
+                Assert.fail();
+            } catch (FeignException e) {
+                Assert.assertTrue(e.getMessage().contains("maximum size of 0"));
+            }
+            // Other addresses have connections of their own.
+            Assert.assertNotNull(call(client, otherServer, "/").block());
+
+            Assert.assertNotNull(slow.get());
+            Assert.assertEquals(0, client.inFlightRequests());
+            Assert.assertNotNull(call(client, server, "/").block());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void connectionIsHeldUntilTheBodyIsReadTest() throws Exception {
+        ReactiveClient.Default client = ReactiveClient.Default.builder()
+                .maxConnections(1)
+                .maxPendingAcquires(0)
+                .build();
+        try {
+            ClientResponse response = client.executeReactive(request(server, "/"), new Request.Options()).block();
+            Assert.assertEquals(1, client.inFlightRequests());
+
+            response.bodyToMono(String.class).block();
+            Assert.assertEquals(0, client.inFlightRequests());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void connectionsAreReusedTest() throws Exception {
+        ReactiveClient.Default client = ReactiveClient.Default.builder().build();
+        try {
+            String port = call(client, server, "/").block();
+            Thread.sleep(300);
+            Assert.assertEquals(port, call(client, server, "/").block());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void idleConnectionsAreClosedTest() throws Exception {
+        ReactiveClient.Default client = ReactiveClient.Default.builder()
+                .maxIdleTimeMillis(100)
+                .build();
+        try {
+            String port = call(client, server, "/").block();
+            Thread.sleep(300);
+            Assert.assertNotEquals(port, call(client, server, "/").block());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void expiredConnectionsServeOneLastExchangeTest() throws Exception {
+        ReactiveClient.Default client = ReactiveClient.Default.builder()
+                .maxLifeTimeMillis(200)
+                .build();
+        try {
+            String port = call(client, server, "/").block();
+            Thread.sleep(300);
+            Assert.assertEquals(port, call(client, server, "/").block());
+            Thread.sleep(100);
+            Assert.assertNotEquals(port, call(client, server, "/").block());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void closedClientFailsRequestsTest() throws Exception {
+        ReactiveClient.Default client = ReactiveClient.Default.builder()
+                .maxConnections(2)
+                .eventLoopCount(1)
+                .build();
+        Assert.assertNotNull(call(client, server, "/").block());
+
+        client.close();
+        try {
+            call(client, server, "/").block();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static Mono<String> call(ReactiveClient client, NettyContext server, String path) throws IOException {
+        return call(client, server, path, new Request.Options());
+    }
+
+    private static Mono<String> call(ReactiveClient client, NettyContext server, String path,
+                                     Request.Options options) throws IOException {
+        return client.executeReactive(request(server, path), options)
+                .flatMap(response -> response.bodyToMono(String.class));
+    }
+
+    private static Request request(NettyContext server, String path) {
+        return Request.create("GET", "http://127.0.0.1:" + server.address().getPort() + path,
+                Collections.emptyMap(), null, null);
+    }
+}
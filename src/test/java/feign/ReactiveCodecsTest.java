@@ -0,0 +1,68 @@
+package feign;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ReactiveCodecsTest {
+
+    private static final AtomicReference<byte[]> received = new AtomicReference<>();
+    private static NettyContext server;
+
+    public static class Item {
+        public String name;
+        public int count;
+    }
+
+    interface SmileApi {
+        @Headers({"Accept: application/x-jackson-smile", "Content-Type: application/x-jackson-smile"})
+        @RequestLine("POST /echo")
+        Mono<Item> echo(Item item);
+    }
+
+    @BeforeClass
+    public static void startServer() {
+        server = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> response
+                        .header("Content-Type", request.requestHeaders().get("Content-Type"))
+                        .sendByteArray(request.receive().aggregate().asByteArray().doOnNext(received::set)))
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.dispose();
+    }
+
+    @Test
+    public void smileTest() {
+        SmileApi api = ReactiveFeign.builder()
+                .codecs(ReactiveCodecs.smile())
+                .target(SmileApi.class, "http://127.0.0.1:" + server.address().getPort());
+
+        Item item = new Item();
+        item.name = "item";
+        item.count = 3;
+        Item echoed = api.echo(item).block();
+
+        Assert.assertEquals("item", echoed.name);
+        Assert.assertEquals(3, echoed.count);
+        // Smile content starts with the ":)\n" header.
+        Assert.assertEquals(':', received.get()[0]);
+        Assert.assertEquals(')', received.get()[1]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void codecsWithGivenClientTest() {
+        ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .codecs(ReactiveCodecs.smile())
+                .build();
+    }
+}
@@ -0,0 +1,144 @@
+package feign;
+
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs in a JVM of its own (see the surefire configuration), so every buffer is tracked by the leak detector.
+ */
+public class ReactiveErrorDecoderTest {
+
+    private static final List<String> LEAKS = new CopyOnWriteArrayList<>();
+    private static final int BODY_SIZE = 64 * 1024;
+
+    static {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new RecordingLeakDetectorFactory());
+    }
+
+    private static NettyContext server;
+
+    interface ErrorApi {
+        @RequestLine("GET /client")
+        Mono<String> clientError();
+
+        @RequestLine("GET /server")
+        Mono<String> serverError();
+    }
+
+    @BeforeClass
+    public static void startServer() {
+        StringBuilder body = new StringBuilder(BODY_SIZE);
+        for (int i = 0; i < BODY_SIZE; i++) {
+            body.append((char) ('a' + i % 26));
+        }
+        server = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> response
+                        .status(request.uri().startsWith("/client") ? 400 : 500)
+                        .header("Content-Type", "text/plain; charset=UTF-8")
+                        .sendString(Mono.just(body.toString())))
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.dispose();
+    }
+
+    @Test
+    public void defaultDecoderTest() {
+        ErrorApi api = ReactiveFeign.builder().target(ErrorApi.class, url());
+
+        try {
+            api.clientError().block();
+            Assert.fail();
+        } catch (HttpClientErrorException e) {
+            Assert.assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+            Assert.assertEquals(DecodingPlan.DEFAULT_MAX_ERROR_BODY_SIZE, e.getResponseBodyAsByteArray().length);
+            Assert.assertTrue(e.getResponseBodyAsString().startsWith("abc"));
+        }
+        try {
+            api.serverError().block();
+            Assert.fail();
+        } catch (HttpServerErrorException e) {
+            Assert.assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void customDecoderTest() {
+        ErrorApi api = ReactiveFeign.builder()
+                .reactiveErrorDecoder((methodKey, status, headers, body) -> new IllegalStateException(
+                        methodKey + " " + status.value() + " " + new String(body)))
+                .maxErrorBodySize(4)
+                .target(ErrorApi.class, url());
+
+        try {
+            api.clientError().block();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("ErrorApi#clientError() 400 abcd", e.getMessage());
+        }
+    }
+
+    @Test
+    public void errorBodiesAreReleasedTest() throws Exception {
+        ErrorApi api = ReactiveFeign.builder().target(ErrorApi.class, url());
+
+        callAll(api, 200);
+        // Leaks are reported once their buffers are collected and new buffers are tracked.
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            callAll(api, 20);
+        }
+        Assert.assertEquals(LEAKS.toString(), 0, LEAKS.size());
+    }
+
+    private static void callAll(ErrorApi api, int calls) {
+        for (int i = 0; i < calls; i++) {
+            try {
+                (i % 2 == 0 ? api.clientError() : api.serverError()).block();
+                Assert.fail();
+            } catch (HttpClientErrorException | HttpServerErrorException e) {
+                // expected
+            }
+        }
+    }
+
+    private static String url() {
+        return "http://127.0.0.1:" + server.address().getPort();
+    }
+
+    private static final class RecordingLeakDetectorFactory extends ResourceLeakDetectorFactory {
+        @Override
+        @SuppressWarnings("deprecation")
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval,
+                                                                   long maxActive) {
+            return new ResourceLeakDetector<T>(resource, samplingInterval, maxActive) {
+                @Override
+                protected void reportTracedLeak(String resourceType, String records) {
+                    LEAKS.add(resourceType + records);
+                }
+
+                @Override
+                protected void reportUntracedLeak(String resourceType) {
+                    LEAKS.add(resourceType);
+                }
+            };
+        }
+    }
+}
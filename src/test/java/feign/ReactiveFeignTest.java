@@ -9,12 +9,22 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import reactor.core.publisher.Flux;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * @author haharonof (on 02/01/2018).
@@ -44,6 +54,164 @@ public class ReactiveFeignTest {
         assertResponse(RequestMethod.DELETE, port, service.delete().block());
     }
 
+    @Test
+    public void fluxEndpointTest() {
+        ITestService service = ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .target(ITestService.class, "http://localhost:8080/dummy");
+
+        Assert.assertEquals(Arrays.asList(1, 2, 3), service.flux().collectList().block());
+    }
+
+    @Test
+    public void rawBodyTest() {
+        ITestService service = ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .target(ITestService.class, "http://localhost:8080/dummy");
+
+        Assert.assertEquals("GET-8080", new String(service.getBytes().block(), StandardCharsets.UTF_8));
+        Assert.assertEquals("GET-8080", StandardCharsets.UTF_8.decode(service.getByteBuffer().block()).toString());
+        Assert.assertEquals("GET-8080", service.getDataBuffers()
+                .map(ReactiveFeignTest::readAndRelease)
+                .collect(Collectors.joining())
+                .block());
+
+        ResponseEntity<Flux<DataBuffer>> entity = service.getEntity().block();
+        Assert.assertEquals(HttpStatus.OK, entity.getStatusCode());
+        Assert.assertEquals("GET-8080", entity.getBody()
+                .map(ReactiveFeignTest::readAndRelease)
+                .collect(Collectors.joining())
+                .block());
+    }
+
+    private static String readAndRelease(DataBuffer buffer) {
+        try {
+            return StandardCharsets.UTF_8.decode(buffer.asByteBuffer()).toString();
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    @Test
+    public void requestBodyTest() {
+        ITestService service = ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .target(ITestService.class, "http://localhost:8080/dummy");
+
+        Assert.assertEquals("body", service.echo("body").block());
+        Assert.assertEquals("streamed-body", service.echo(Flux.just("streamed", "-", "body")).block());
+    }
+
+    @Test
+    public void retryPolicyTest() {
+        ITestService service = ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .retryPolicy(ReactiveRetryPolicy.builder()
+                        .backoff(Duration.ofMillis(10), Duration.ofMillis(50))
+                        .build())
+                .target(ITestService.class, "http://localhost:8081/dummy");
+
+        // Whichever call the flaky endpoint fails is retried.
+        for (int i = 0; i < 3; i++) {
+            assertResponse(RequestMethod.GET, 8081, service.flaky().block());
+        }
+
+        // Retries are disabled by the method's annotation, so one of the two calls fails.
+        int failures = 0;
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.flakyWithoutRetry().block();
+            } catch (HttpServerErrorException e) {
+                failures++;
+            }
+        }
+        Assert.assertEquals(1, failures);
+    }
+
+    @Test
+    public void instrumentationTest() {
+        List<Integer> statuses = new ArrayList<>();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger acquired = new AtomicInteger();
+        ReactiveInstrumentation instrumentation = new ReactiveInstrumentation() {
+            @Override
+            public MethodRecorder methodRecorder(String clientName, String configKey) {
+                Assert.assertEquals("http://localhost:8080/dummy", clientName);
+                return new MethodRecorder() {
+                    @Override
+                    public void requestStarted() {
+                        active.incrementAndGet();
+                    }
+
+                    @Override
+                    public void requestEnded(int status, long latencyNanos, Throwable error) {
+                        active.decrementAndGet();
+                        statuses.add(status);
+                    }
+                };
+            }
+
+            @Override
+            public ConnectionRecorder connectionRecorder(String poolName) {
+                return new ConnectionRecorder() {
+                    @Override
+                    public void connectionAcquired(long durationNanos) {
+                        acquired.incrementAndGet();
+                    }
+                };
+            }
+        };
+
+        ITestService service = ReactiveFeign.builder()
+                .reactiveClient(ReactiveClient.Default.builder().instrumentation(instrumentation).build())
+                .instrumentation(instrumentation)
+                .target(ITestService.class, "http://localhost:8080/dummy");
+
+        service.get().block();
+        service.flux().collectList().block();
+
+        Assert.assertEquals(Arrays.asList(200, 200), statuses);
+        Assert.assertEquals(0, active.get());
+        Assert.assertEquals(2, acquired.get());
+    }
+
+    @Test
+    public void responseCacheTest() {
+        ITestService service = ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .target(ITestService.class, "http://localhost:8082/dummy");
+
+        String calls = service.cachedVersionedCalls().block();
+        Assert.assertEquals(calls, service.cachedVersionedCalls().block());
+
+        // The response says no-cache, so every call is revalidated with its ETag and answered by a 304.
+        String first = service.versioned().block();
+        Assert.assertEquals(first, service.versioned().block());
+        Assert.assertEquals(first, service.versioned().block());
+        Assert.assertEquals(Integer.parseInt(first.substring("version-".length())) + 2,
+                Integer.parseInt(service.versionedCalls().block()));
+    }
+
+    @Test
+    public void batchTest() {
+        ITestService service = ReactiveFeign.builder()
+                .reactiveClient(new ReactiveClient.Default())
+                .target(ITestService.class, "http://localhost:8082/dummy");
+
+        int calls = Integer.parseInt(service.itemsCalls().block());
+        List<String> items = Flux.range(0, 20)
+                .flatMapSequential(i -> service.item(String.valueOf(i)))
+                .collectList()
+                .block();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add("item-" + i);
+        }
+        Assert.assertEquals(expected, items);
+        Assert.assertEquals(calls + 2, Integer.parseInt(service.itemsCalls().block()));
+    }
+
     @Test(expected = HttpClientErrorException.class)
     public void wrongEndpointTest() {
         ITestService service = ReactiveFeign.builder()
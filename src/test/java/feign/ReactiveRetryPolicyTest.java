@@ -0,0 +1,96 @@
+package feign;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReactiveRetryPolicyTest {
+
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static NettyContext server;
+
+    interface FlakyApi {
+        @RequestLine("GET /unavailable/{failures}")
+        Mono<String> unavailable(@Param("failures") int failures);
+
+        @RequestLine("GET /bad")
+        Mono<String> bad();
+    }
+
+    /**
+     * Answers 503 to the given number of first requests, then 200. Bad requests always get a 400.
+     */
+    @BeforeClass
+    public static void startServer() {
+        server = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> {
+                    int number = requests.incrementAndGet();
+                    if (request.uri().startsWith("/bad")) {
+                        return response.status(400).sendString(Mono.just("bad")).then();
+                    }
+                    int failures = Integer.parseInt(request.uri().substring("/unavailable/".length()));
+                    return number <= failures
+                            ? response.status(503).sendString(Mono.just("unavailable")).then()
+                            : response.sendString(Mono.just("ok")).then();
+                })
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.dispose();
+    }
+
+    @Before
+    public void reset() {
+        requests.set(0);
+    }
+
+    @Test
+    public void retryableStatusIsRetriedWithCustomErrorDecoderTest() {
+        Assert.assertEquals("ok", api().unavailable(2).block());
+        Assert.assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void exhaustedRetriesFailWithTheDecodedExceptionTest() {
+        try {
+            api().unavailable(5).block();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("503", e.getMessage());
+        }
+        Assert.assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void otherStatusesAreNotRetriedTest() {
+        try {
+            api().bad().block();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("400", e.getMessage());
+        }
+        Assert.assertEquals(1, requests.get());
+    }
+
+    private static FlakyApi api() {
+        return ReactiveFeign.builder()
+                .reactiveErrorDecoder((methodKey, status, headers, body) ->
+                        new IllegalStateException(String.valueOf(status.value())))
+                .retryPolicy(ReactiveRetryPolicy.builder()
+                        .maxAttempts(3)
+                        .backoff(Duration.ofMillis(1), Duration.ofMillis(10))
+                        .build())
+                .retryBudget(new RetryBudget(1, 10))
+                .target(FlakyApi.class, "http://127.0.0.1:" + server.address().getPort());
+    }
+}
@@ -0,0 +1,43 @@
+package feign;
+
+import org.junit.Assert;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+public class RetryBudgetTest {
+
+    interface RetriedApi {
+        @RequestLine("GET /")
+        Mono<String> get();
+    }
+
+    @Test
+    public void depositAndWithdrawTest() {
+        RetryBudget budget = new RetryBudget(0.5, 2);
+        Assert.assertEquals(2, budget.available());
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertFalse(budget.tryWithdraw());
+
+        budget.deposit();
+        Assert.assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        Assert.assertTrue(budget.tryWithdraw());
+    }
+
+    @Test
+    public void unsubscribedCallsDepositNothingTest() {
+        RetryBudget budget = new RetryBudget(1, 2);
+        budget.tryWithdraw();
+        budget.tryWithdraw();
+
+        RetriedApi api = ReactiveFeign.builder()
+                .retryPolicy(ReactiveRetryPolicy.builder().maxAttempts(3).build())
+                .retryBudget(budget)
+                .target(RetriedApi.class, "http://localhost:1");
+        api.get();
+        api.get();
+
+        Assert.assertEquals(0, budget.available());
+    }
+}
@@ -0,0 +1,138 @@
+package feign;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static NettyContext server;
+
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+    interface SearchApi {
+        @RequestLine("GET /items")
+        Mono<String> items();
+
+        @Headers("Content-Type: text/plain")
+        @RequestLine("GET /search")
+        Mono<String> search(String query);
+    }
+
+    @BeforeClass
+    public static void startServer() {
+        // Answers every request with its number, once all of the concurrent calls were sent.
+        server = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> {
+                    String number = String.valueOf(requests.incrementAndGet());
+                    return Mono.delay(Duration.ofMillis(200))
+                            .then(response.sendString(Mono.just(number)).then());
+                })
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.dispose();
+    }
+
+    @Before
+    public void reset() {
+        requests.set(0);
+    }
+
+    @Test
+    public void concurrentCallsShareUpstreamTest() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        Mono<Object> upstream = Mono.delay(Duration.ofMillis(100))
+                .<Object>map(tick -> "value")
+                .doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+
+        Mono<Object> first = singleFlight.execute("key", () -> upstream);
+        Mono<Object> second = singleFlight.execute("key", () -> upstream);
+
+        Assert.assertEquals("value-value", Mono.zip(first, second, (a, b) -> a + "-" + b).block());
+        Assert.assertEquals(1, subscriptions.get());
+        Assert.assertEquals(0, singleFlight.inFlight());
+
+        // A terminated call isn't shared with later callers.
+        Assert.assertEquals("value", singleFlight.execute("key", () -> upstream).block());
+        Assert.assertEquals(2, subscriptions.get());
+    }
+
+    @Test
+    public void upstreamCancelledByLastSubscriberTest() {
+        AtomicInteger cancellations = new AtomicInteger();
+        Mono<Object> upstream = Mono.never().doOnCancel(cancellations::incrementAndGet);
+
+        Disposable first = singleFlight.execute("key", () -> upstream).subscribe();
+        Disposable second = singleFlight.execute("key", () -> upstream).subscribe();
+
+        first.dispose();
+        Assert.assertEquals(0, cancellations.get());
+        Assert.assertEquals(1, singleFlight.inFlight());
+
+        second.dispose();
+        Assert.assertEquals(1, cancellations.get());
+        Assert.assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    public void callsWithBodiesAreNotSharedTest() {
+        AtomicInteger bodies = new AtomicInteger();
+        SearchApi api = ReactiveFeign.builder()
+                .reactiveClient(withoutBodies(new ReactiveClient.Default(), bodies))
+                .singleFlight(true)
+                .target(SearchApi.class, "http://127.0.0.1:" + server.address().getPort());
+
+        String shared = Mono.zip(api.items(), api.items(), (a, b) -> a + "-" + b).block();
+        Assert.assertEquals("1-1", shared);
+        Assert.assertEquals(1, requests.get());
+
+        String searched = Mono.zip(api.search("a"), api.search("b"), (a, b) -> a + "-" + b).block();
+        Assert.assertNotEquals(searched.split("-")[0], searched.split("-")[1]);
+        Assert.assertEquals(3, requests.get());
+        Assert.assertEquals(2, bodies.get());
+    }
+
+    /**
+     * Counts the bodies instead of sending them, the reactor-netty client doesn't send the body of a GET.
+     */
+    private static ReactiveClient withoutBodies(ReactiveClient delegate, AtomicInteger bodies) {
+        return new ReactiveClient() {
+            @Override
+            public Response execute(Request request, Request.Options options) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Mono<ClientResponse> executeReactive(Request request, Request.Options options) throws IOException {
+                return delegate.executeReactive(request, options);
+            }
+
+            @Override
+            public Mono<ClientResponse> executeReactive(Request request, Request.Options options,
+                                                        BodyInserter<?, ? super ClientHttpRequest> body)
+                    throws IOException {
+                if (body != null) {
+                    bodies.incrementAndGet();
+                }
+                return delegate.executeReactive(request, options);
+            }
+        };
+    }
+}
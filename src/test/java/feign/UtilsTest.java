@@ -3,8 +3,9 @@ package feign;
 import org.junit.Assert;
 import org.junit.Test;
 import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import sun.reflect.generics.reflectiveObjects.ParameterizedTypeImpl;
 
 import java.lang.reflect.Type;
 
@@ -20,6 +21,13 @@ public class UtilsTest {
         Assert.assertFalse((Utils.isMono(String.class)));
     }
 
+    @Test
+    public void testIsFlux() {
+        Assert.assertTrue((Utils.isFlux(Flux.class)));
+        Assert.assertFalse((Utils.isFlux(Mono.class)));
+        Assert.assertFalse((Utils.isFlux(Publisher.class)));
+    }
+
     @Test
     public void getReactiveParameterizedTypeNullTest() {
         Assert.assertNull(Utils.getReactiveParameterizedType(null));
@@ -33,16 +41,19 @@ public class UtilsTest {
     @Test(expected = FeignException.class)
     public void getReactiveParameterizedTypeNotMonoTest() {
         Assert.assertNull(Utils.getReactiveParameterizedType(String.class));
-        Type[] types = {String.class};
-        Utils.getReactiveParameterizedType(ParameterizedTypeImpl.make(Publisher.class, types, null));
+        Utils.getReactiveParameterizedType(ResolvableType.forClassWithGenerics(Publisher.class, String.class).getType());
     }
 
     @Test
     public void getReactiveParameterizedTypeTest() {
         Assert.assertNull(Utils.getReactiveParameterizedType(String.class));
-        Type[] types = {String.class};
-        ParameterizedTypeImpl parameterizedType = ParameterizedTypeImpl.make(Mono.class, types, null);
+        Type parameterizedType = ResolvableType.forClassWithGenerics(Mono.class, String.class).getType();
         Assert.assertEquals(parameterizedType, Utils.getReactiveParameterizedType(parameterizedType));
     }
 
+    @Test
+    public void getReactiveParameterizedTypeFluxTest() {
+        Type parameterizedType = ResolvableType.forClassWithGenerics(Flux.class, String.class).getType();
+        Assert.assertEquals(parameterizedType, Utils.getReactiveParameterizedType(parameterizedType));
+    }
 }
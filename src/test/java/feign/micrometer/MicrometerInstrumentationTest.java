@@ -0,0 +1,154 @@
+package feign.micrometer;
+
+import feign.ReactiveCache;
+import feign.ReactiveFeign;
+import feign.ReactiveInstrumentation.MethodRecorder;
+import feign.RequestLine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class MicrometerInstrumentationTest {
+
+    private static NettyContext server;
+    private SimpleMeterRegistry registry;
+
+    interface CachedApi {
+        @ReactiveCache
+        @RequestLine("GET /cached")
+        Mono<String> cached();
+    }
+
+    @BeforeClass
+    public static void startServer() {
+        server = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> response.sendString(Mono.just("ok")).then())
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.dispose();
+    }
+
+    @Before
+    public void createRegistry() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void requestsAreTimedByStatusClassTest() {
+        MethodRecorder recorder = new MicrometerInstrumentation(registry).methodRecorder("client", "Api#get()");
+
+        recorder.requestStarted();
+        recorder.requestEnded(200, TimeUnit.MILLISECONDS.toNanos(5), null);
+        recorder.requestStarted();
+        recorder.requestEnded(204, TimeUnit.MILLISECONDS.toNanos(7), null);
+        recorder.requestStarted();
+        recorder.requestEnded(503, TimeUnit.MILLISECONDS.toNanos(1), null);
+
+        Timer ok = requests("2xx");
+        Assert.assertEquals(2, ok.count());
+        Assert.assertEquals(12, ok.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        Assert.assertEquals(1, requests("5xx").count());
+        Assert.assertNull(registry.find("reactive.feign.requests").tags("status", "NONE").timer());
+    }
+
+    @Test
+    public void activeRequestsAreGaugedTest() {
+        MethodRecorder recorder = new MicrometerInstrumentation(registry).methodRecorder("client", "Api#get()");
+        Gauge active = registry.find("reactive.feign.requests.active")
+                .tags("client", "client", "method", "Api#get()")
+                .gauge();
+        Assert.assertNotNull(active);
+
+        recorder.requestStarted();
+        recorder.requestStarted();
+        recorder.requestStarted();
+        Assert.assertEquals(3, active.value(), 0);
+
+        recorder.requestEnded(200, 1, null);
+        recorder.requestCancelled(1);
+        recorder.requestCached(1);
+        Assert.assertEquals(0, active.value(), 0);
+        Assert.assertEquals(1, requests("CANCELLED").count());
+        Assert.assertEquals(1, requests("CACHED").count());
+    }
+
+    @Test
+    public void errorsAreCountedByExceptionTest() {
+        MethodRecorder recorder = new MicrometerInstrumentation(registry).methodRecorder("client", "Api#get()");
+
+        recorder.requestStarted();
+        recorder.requestEnded(0, 1, new IOException("refused"));
+        recorder.requestStarted();
+        recorder.requestEnded(0, 1, new IOException("reset"));
+        recorder.requestStarted();
+        recorder.requestEnded(500, 1, new IllegalStateException("500"));
+
+        Assert.assertEquals(2, errors("IOException").count(), 0);
+        Assert.assertEquals(1, errors("IllegalStateException").count(), 0);
+        Assert.assertEquals(2, requests("NONE").count());
+        Assert.assertEquals(1, requests("5xx").count());
+    }
+
+    @Test
+    public void cacheHitsAreTaggedAsCachedTest() throws InterruptedException {
+        String url = "http://127.0.0.1:" + server.address().getPort();
+        CachedApi api = ReactiveFeign.builder()
+                .instrumentation(new MicrometerInstrumentation(registry))
+                .target(CachedApi.class, url);
+
+        Assert.assertEquals("ok", api.cached().block());
+        Assert.assertEquals("ok", api.cached().block());
+        Assert.assertEquals("ok", api.cached().block());
+
+        // The first call is recorded on the connection's thread once it terminated, which may be after block().
+        Timer ok = awaitTimer(url, "2xx");
+        Timer cached = awaitTimer(url, "CACHED");
+        Assert.assertEquals(1, ok.count());
+        Assert.assertEquals(2, cached.count());
+        Assert.assertNull(registry.find("reactive.feign.requests").tags("status", "NONE").timer());
+    }
+
+    private Timer awaitTimer(String client, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (; ; ) {
+            Timer timer = registry.find("reactive.feign.requests")
+                    .tags("client", client, "method", "CachedApi#cached()", "status", status)
+                    .timer();
+            if (timer != null && timer.count() > 0 || System.nanoTime() - deadline > 0) {
+                return timer;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private Timer requests(String status) {
+        Timer timer = registry.find("reactive.feign.requests")
+                .tags("client", "client", "method", "Api#get()", "status", status)
+                .timer();
+        Assert.assertNotNull(timer);
+        return timer;
+    }
+
+    private Counter errors(String exception) {
+        Counter counter = registry.find("reactive.feign.errors")
+                .tags("client", "client", "method", "Api#get()", "exception", exception)
+                .counter();
+        Assert.assertNotNull(counter);
+        return counter;
+    }
+}
@@ -0,0 +1,85 @@
+package feign.ribbon;
+
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.Server;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class PeakEwmaRuleTest {
+
+    private final Server fast = new Server("fast", 80);
+    private final Server slow = new Server("slow", 80);
+    private final PeakEwmaRule rule = new PeakEwmaRule(Duration.ofSeconds(10), Duration.ofSeconds(1));
+
+    @Before
+    public void setUp() {
+        BaseLoadBalancer loadBalancer = new BaseLoadBalancer();
+        loadBalancer.setRule(rule);
+        loadBalancer.addServers(Arrays.asList(fast, slow));
+    }
+
+    @Test
+    public void prefersLowerLatencyTest() {
+        call(fast, 5);
+        call(slow, 50);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(fast, rule.choose(null));
+        }
+    }
+
+    @Test
+    public void peakIsTakenAtOnceTest() {
+        call(fast, 5);
+        call(slow, 10);
+        Assert.assertEquals(fast, rule.choose(null));
+
+        call(fast, 100);
+        Assert.assertEquals(slow, rule.choose(null));
+    }
+
+    @Test
+    public void outstandingCallsAddCostTest() {
+        call(fast, 5);
+        call(slow, 8);
+        rule.callStarted(fast);
+        rule.callStarted(fast);
+
+        Assert.assertEquals(slow, rule.choose(null));
+    }
+
+    @Test
+    public void failuresArePenalizedTest() {
+        call(fast, 5);
+        call(slow, 50);
+        rule.callStarted(fast);
+        rule.callEnded(fast, TimeUnit.MILLISECONDS.toNanos(1), new IOException("connection refused"));
+
+        Assert.assertTrue(rule.cost(fast) >= TimeUnit.MILLISECONDS.toNanos(900));
+        Assert.assertEquals(slow, rule.choose(null));
+    }
+
+    @Test
+    public void cancelledCallsAreNotSampledTest() {
+        call(fast, 5);
+        call(slow, 50);
+        double cost = rule.cost(fast);
+
+        rule.callStarted(fast);
+        rule.callCancelled(fast);
+
+        Assert.assertEquals(cost, rule.cost(fast), cost * 0.01);
+        Assert.assertEquals(fast, rule.choose(null));
+    }
+
+    private void call(Server server, long latencyMillis) {
+        rule.callStarted(server);
+        rule.callEnded(server, TimeUnit.MILLISECONDS.toNanos(latencyMillis), null);
+    }
+}
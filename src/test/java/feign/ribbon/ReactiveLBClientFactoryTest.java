@@ -0,0 +1,52 @@
+package feign.ribbon;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReactiveLBClientFactoryTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final ReactiveLBClientFactory countingFactory = clientName -> {
+        created.incrementAndGet();
+        return ReactiveLBClient.create(new BaseLoadBalancer(),
+                DefaultClientConfigImpl.getClientConfigWithDefaultValues(clientName));
+    };
+
+    @Test
+    public void cachingReusesClientPerNameTest() {
+        ReactiveLBClientFactory.Caching factory = new ReactiveLBClientFactory.Caching(countingFactory);
+
+        ReactiveLBClient first = factory.create("first");
+        Assert.assertSame(first, factory.create("first"));
+        Assert.assertNotSame(first, factory.create("second"));
+        Assert.assertEquals(2, created.get());
+    }
+
+    @Test
+    public void cachingEvictAndRefreshTest() {
+        ReactiveLBClientFactory.Caching factory = new ReactiveLBClientFactory.Caching(countingFactory);
+
+        ReactiveLBClient first = factory.create("first");
+        factory.evict("first");
+        ReactiveLBClient second = factory.create("first");
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(second, factory.refresh("first"));
+        Assert.assertEquals(3, created.get());
+    }
+
+    @Test
+    public void cachingIsBoundedTest() {
+        ReactiveLBClientFactory.Caching factory = new ReactiveLBClientFactory.Caching(countingFactory, 2);
+
+        ReactiveLBClient first = factory.create("first");
+        factory.create("second");
+        factory.create("third");
+        Assert.assertEquals(2, factory.size());
+        Assert.assertNotSame(first, factory.create("first"));
+    }
+}
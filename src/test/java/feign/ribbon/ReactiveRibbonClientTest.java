@@ -0,0 +1,252 @@
+package feign.ribbon;
+
+import com.netflix.client.HedgePolicy;
+import com.netflix.client.RequestHedger;
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.Server;
+import feign.ReactiveClient;
+import feign.Request;
+import feign.Response;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.ipc.netty.NettyContext;
+import reactor.ipc.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReactiveRibbonClientTest {
+
+    private static NettyContext slowServer;
+    private static NettyContext fastServer;
+
+    private final ReactiveRibbonClient client = ReactiveRibbonClient.create();
+    private final Server server = new Server("10.0.0.1", 8080);
+    private final Queue<String> requested = new ConcurrentLinkedQueue<>();
+    private final Queue<String> cancelled = new ConcurrentLinkedQueue<>();
+
+    @BeforeClass
+    public static void startServers() {
+        slowServer = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> Mono.delay(Duration.ofMillis(500))
+                        .then(response.sendString(Mono.just("slow")).then()))
+                .block();
+        fastServer = HttpServer.create("127.0.0.1", 0)
+                .newHandler((request, response) -> response.sendString(Mono.just("fast")))
+                .block();
+    }
+
+    @AfterClass
+    public static void stopServers() {
+        slowServer.dispose();
+        fastServer.dispose();
+    }
+
+    @Test
+    public void routeTest() {
+        ReactiveRibbonClient.Route route = client.route("http://service/service/items?id=service");
+
+        Assert.assertEquals("service", route.clientName());
+        Assert.assertEquals("http://10.0.0.1:8080/service/items?id=service",
+                route.urlFor(server, "http://service/service/items?id=service"));
+        Assert.assertSame(route, client.route("http://service/other"));
+        Assert.assertNotSame(route, client.route("http://service2/other"));
+    }
+
+    @Test
+    public void routeWithPortTest() {
+        ReactiveRibbonClient.Route route = client.route("https://service:8443");
+
+        Assert.assertEquals("service", route.clientName());
+        Assert.assertEquals("https", route.loadBalancerUri().getScheme());
+        Assert.assertEquals("https://10.0.0.1:8080", route.urlFor(server, "https://service:8443"));
+    }
+
+    @Test
+    public void requestIsRewrittenForServerTest() {
+        Request request = Request.create("GET", "http://service/path",
+                Collections.emptyMap(), null, null);
+        ReactiveLBClient.RibbonRequest ribbonRequest =
+                new ReactiveLBClient.RibbonRequest(null, request, client.route(request.url()), null);
+
+        Assert.assertEquals("http://10.0.0.1:8080/path", ribbonRequest.forServer(server).toRequest().url());
+        Assert.assertEquals("http://service/path", ribbonRequest.toRequest().url());
+    }
+
+    @Test
+    public void hedgedRequestTest() {
+        ReactiveLBClient lbClient = slowFirstLbClient();
+        ReactiveRibbonClient hedgingClient = hedgingClient(lbClient);
+
+        Assert.assertEquals("fast", body(hedgingClient, Request.create("GET", "http://hedged/items",
+                Collections.emptyMap(), null, null)));
+
+        RequestHedger hedger = lbClient.getRequestHedger();
+        Assert.assertEquals(1, hedger.getHedgeCount());
+        Assert.assertEquals(1, hedger.getHedgeWinCount());
+        Assert.assertEquals(Arrays.asList(url(slowServer), url(fastServer)), Arrays.asList(requested.toArray()));
+        Assert.assertEquals(Collections.singletonList(url(slowServer)), Arrays.asList(cancelled.toArray()));
+    }
+
+    @Test
+    public void responseLosingTheRaceIsReleasedTest() throws Exception {
+        ReactiveClient.Default delegate = ReactiveClient.Default.builder()
+                .maxConnections(2)
+                .maxPendingAcquires(10)
+                .build();
+        try {
+            for (int i = 0; i < 5; i++) {
+                ReactiveRibbonClient hedgingClient = ReactiveRibbonClient.builder()
+                        .delegate(answeringTogether(delegate, new CyclicBarrier(2)))
+                        .reactiveLbClientFactory(clientName -> slowFirstLbClient())
+                        .hedgePolicy(HedgePolicy.fixedDelay(Duration.ofMillis(50)))
+                        .build();
+
+                Assert.assertNotNull(body(hedgingClient, Request.create("GET", "http://hedged/items",
+                        Collections.emptyMap(), null, null)));
+                // The body of the other response is drained in the background.
+                for (int wait = 0; wait < 100 && delegate.inFlightRequests() > 0; wait++) {
+                    Thread.sleep(10);
+                }
+                Assert.assertEquals(0, delegate.inFlightRequests());
+            }
+        } finally {
+            delegate.close();
+        }
+    }
+
+    @Test
+    public void postIsNotHedgedTest() {
+        ReactiveLBClient lbClient = slowFirstLbClient();
+        ReactiveRibbonClient hedgingClient = hedgingClient(lbClient);
+
+        Assert.assertEquals("slow", body(hedgingClient, Request.create("POST", "http://hedged/items",
+                Collections.emptyMap(), "item".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(0, lbClient.getRequestHedger().getHedgeCount());
+        Assert.assertEquals(Collections.singletonList(url(slowServer)), Arrays.asList(requested.toArray()));
+        Assert.assertTrue(cancelled.isEmpty());
+    }
+
+    @Test
+    public void sharedClientsAreNotReconfiguredTest() {
+        ReactiveLBClientFactory.Caching shared =
+                new ReactiveLBClientFactory.Caching(clientName -> slowFirstLbClient());
+        ReactiveLBClient sharedClient = shared.create("hedged");
+
+        Assert.assertEquals("fast", body(hedgingClient(shared), Request.create("GET", "http://hedged/items",
+                Collections.emptyMap(), null, null)));
+
+        Assert.assertNull(sharedClient.getHedgePolicy());
+        Assert.assertSame(sharedClient, shared.create("hedged"));
+    }
+
+    private ReactiveRibbonClient hedgingClient(ReactiveLBClient lbClient) {
+        return hedgingClient(clientName -> lbClient);
+    }
+
+    private ReactiveRibbonClient hedgingClient(ReactiveLBClientFactory factory) {
+        return ReactiveRibbonClient.builder()
+                .delegate(recording(ReactiveClient.Default.builder().build()))
+                .reactiveLbClientFactory(factory)
+                .hedgePolicy(HedgePolicy.fixedDelay(Duration.ofMillis(50)))
+                .build();
+    }
+
+    /**
+     * Chooses the slow server first and the fast one for the hedge.
+     */
+    private static ReactiveLBClient slowFirstLbClient() {
+        List<Server> servers = Arrays.asList(
+                new Server("127.0.0.1", slowServer.address().getPort()),
+                new Server("127.0.0.1", fastServer.address().getPort()));
+        AtomicInteger choices = new AtomicInteger();
+        BaseLoadBalancer lb = new BaseLoadBalancer();
+        lb.setRule(new AbstractLoadBalancerRule() {
+            @Override
+            public Server choose(Object key) {
+                return servers.get(choices.getAndIncrement() % servers.size());
+            }
+
+            @Override
+            public void initWithNiwsConfig(IClientConfig clientConfig) {
+            }
+        });
+        lb.addServers(servers);
+        return ReactiveLBClient.create(lb, DefaultClientConfigImpl.getClientConfigWithDefaultValues("hedged"));
+    }
+
+    private ReactiveClient recording(ReactiveClient delegate) {
+        return new ReactiveClient() {
+            @Override
+            public Response execute(Request request, Request.Options options) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Mono<ClientResponse> executeReactive(Request request, Request.Options options)
+                    throws IOException {
+                requested.add(request.url());
+                return delegate.executeReactive(request, options)
+                        .doOnCancel(() -> cancelled.add(request.url()));
+            }
+        };
+    }
+
+    /**
+     * Holds each response until the other request answered too, then passes both on at once from two threads.
+     */
+    private static ReactiveClient answeringTogether(ReactiveClient delegate, CyclicBarrier bothAnswered) {
+        return new ReactiveClient() {
+            @Override
+            public Response execute(Request request, Request.Options options) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Mono<ClientResponse> executeReactive(Request request, Request.Options options)
+                    throws IOException {
+                return delegate.executeReactive(request, options)
+                        .publishOn(Schedulers.elastic())
+                        .doOnNext(response -> {
+                            try {
+                                bothAnswered.await(5, TimeUnit.SECONDS);
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+            }
+        };
+    }
+
+    private static String body(ReactiveRibbonClient client, Request request) {
+        try {
+            return client.executeReactive(request, new Request.Options())
+                    .flatMap(response -> response.bodyToMono(String.class))
+                    .block();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String url(NettyContext server) {
+        return "http://127.0.0.1:" + server.address().getPort() + "/items";
+    }
+}
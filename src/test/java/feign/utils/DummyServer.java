@@ -3,11 +3,23 @@ package feign.utils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * @author haharonof (on 02/01/2018).
@@ -20,6 +32,12 @@ public class DummyServer {
     @Autowired
     private Environment environment;
 
+    private final AtomicInteger flakyCalls = new AtomicInteger();
+
+    private final AtomicInteger versionedCalls = new AtomicInteger();
+
+    private final AtomicInteger itemsCalls = new AtomicInteger();
+
     @RequestMapping(path = "/get", method = RequestMethod.GET)
     public String get() {
         return response(RequestMethod.GET);
@@ -50,6 +68,55 @@ public class DummyServer {
         return response(RequestMethod.DELETE);
     }
 
+    @RequestMapping(path = "/flux", method = RequestMethod.GET)
+    public Flux<Integer> flux() {
+        return Flux.just(1, 2, 3);
+    }
+
+    @RequestMapping(path = "/echo", method = RequestMethod.POST)
+    public Mono<String> echo(@RequestBody Mono<String> body) {
+        return body;
+    }
+
+    @RequestMapping(path = "/flaky", method = RequestMethod.GET)
+    public ResponseEntity<String> flaky() {
+        // Every other call is unavailable.
+        if (flakyCalls.getAndIncrement() % 2 == 0) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(response(RequestMethod.GET));
+    }
+
+    @RequestMapping(path = "/versioned", method = RequestMethod.GET)
+    public ResponseEntity<String> versioned(@RequestHeader(value = "If-None-Match", required = false) String etag) {
+        int calls = versionedCalls.incrementAndGet();
+        if ("\"v1\"".equals(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("\"v1\"").build();
+        }
+        return ResponseEntity.ok().eTag("\"v1\"").cacheControl(CacheControl.noCache()).body("version-" + calls);
+    }
+
+    @RequestMapping(path = "/versioned/calls", method = RequestMethod.GET)
+    public String versionedCalls() {
+        return String.valueOf(versionedCalls.get());
+    }
+
+    @RequestMapping(path = "/item/{id}", method = RequestMethod.GET)
+    public String item(@PathVariable("id") String id) {
+        return "item-" + id;
+    }
+
+    @RequestMapping(path = "/items", method = RequestMethod.POST)
+    public List<String> items(@RequestBody List<String> ids) {
+        itemsCalls.incrementAndGet();
+        return ids.stream().map(this::item).collect(Collectors.toList());
+    }
+
+    @RequestMapping(path = "/items/calls", method = RequestMethod.GET)
+    public String itemsCalls() {
+        return String.valueOf(itemsCalls.get());
+    }
+
     private String response(RequestMethod method) {
         return String.format("%s-%s", method.name(), environment.getProperty("server.port"));
     }
@@ -1,9 +1,19 @@
 package feign.utils;
 
+import feign.Batch;
 import feign.Headers;
+import feign.Param;
+import feign.ReactiveCache;
+import feign.ReactiveRetry;
 import feign.RequestLine;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 /**
  * @author haharonof (on 02/01/2018).
  */
@@ -32,4 +42,62 @@ public interface ITestService {
     @Headers("Content-Type: application/json")
     @RequestLine("DELETE /delete")
     Mono<String> delete();
+
+    @Headers("Content-Type: application/json")
+    @RequestLine("GET /flux")
+    Flux<Integer> flux();
+
+    @RequestLine("GET /get")
+    Mono<byte[]> getBytes();
+
+    @RequestLine("GET /get")
+    Mono<ByteBuffer> getByteBuffer();
+
+    @RequestLine("GET /get")
+    Flux<DataBuffer> getDataBuffers();
+
+    @RequestLine("GET /get")
+    Mono<ResponseEntity<Flux<DataBuffer>>> getEntity();
+
+    @Headers("Content-Type: text/plain")
+    @RequestLine("POST /echo")
+    Mono<String> echo(String body);
+
+    @Headers("Content-Type: text/plain")
+    @RequestLine("POST /echo")
+    Mono<String> echo(Flux<String> body);
+
+    @Headers("Content-Type: application/json")
+    @RequestLine("GET /flaky")
+    Mono<String> flaky();
+
+    @ReactiveRetry(maxAttempts = 1)
+    @Headers("Content-Type: application/json")
+    @RequestLine("GET /flaky")
+    Mono<String> flakyWithoutRetry();
+
+    @ReactiveCache
+    @Headers("Content-Type: application/json")
+    @RequestLine("GET /versioned/calls")
+    Mono<String> cachedVersionedCalls();
+
+    @Headers("Content-Type: application/json")
+    @RequestLine("GET /versioned/calls")
+    Mono<String> versionedCalls();
+
+    @ReactiveCache
+    @Headers("Content-Type: application/json")
+    @RequestLine("GET /versioned")
+    Mono<String> versioned();
+
+    @Batch(method = "items", maxSize = 10, windowMillis = 50)
+    @RequestLine("GET /item/{id}")
+    Mono<String> item(@Param("id") String id);
+
+    @Headers("Content-Type: application/json")
+    @RequestLine("POST /items")
+    Mono<List<String>> items(List<String> ids);
+
+    @RequestLine("GET /items/calls")
+    Mono<String> itemsCalls();
 }